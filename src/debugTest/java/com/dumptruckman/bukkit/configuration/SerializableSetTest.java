@@ -1,12 +1,113 @@
 package com.dumptruckman.bukkit.configuration;
 
 import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
 public class SerializableSetTest {
+
+    private Random random;
+
     @Before
     public void setUp() throws Exception {
+        random = new Random(42);
+    }
+
+    @Test
+    public void testIntegersBehaveLikeHashSet() {
+        compareWithHashSet(new IntOpenHashSet(0), () -> random.nextInt(2000) - 1000);
+    }
+
+    @Test
+    public void testLongsBehaveLikeHashSet() {
+        compareWithHashSet(new LongOpenHashSet(0), () -> (random.nextInt(2000) - 1000) * 10000000000L);
+    }
+
+    @Test
+    public void testStringsBehaveLikeHashSet() {
+        compareWithHashSet(new StringOpenHashSet(0), () -> "key" + random.nextInt(2000));
+    }
+
+    @Test
+    public void testDeserializedSetsAreCompact() {
+        assertCompact(IntOpenHashSet.class, Arrays.<Object>asList(1, 2, 3));
+        assertCompact(LongOpenHashSet.class, Arrays.<Object>asList(1L, 2L));
+        assertCompact(StringOpenHashSet.class, Arrays.<Object>asList("a", "b"));
+        assertEquals(HashSet.class, CompactSet.copyOf(Arrays.<Object>asList(1, 2L)).getClass());
+        assertEquals(HashSet.class, CompactSet.copyOf(Arrays.<Object>asList("a", null)).getClass());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testAddingOtherTypesSwitchesToHashSet() {
+        SerializableSet set = SerializableSet.copyOf(Arrays.asList(1, 2, 3));
+        assertTrue(set.add("four"));
+        assertTrue(set.addAll(Arrays.asList(5L, null)));
+        assertEquals(new HashSet<Object>(Arrays.asList(1, 2, 3, "four", 5L, null)), set);
+    }
+
+    @Test
+    public void testSerializedFormRoundTrips() {
+        Set<Object> expected = new HashSet<Object>();
+        for (int i = 0; i < 1000; i++) {
+            expected.add(i * 7);
+        }
+        Map<String, Object> serialized = new SerializableSet(expected).serialize();
+        List<?> contents = (List<?>) serialized.get("contents");
+        assertEquals(expected.size(), contents.size());
+        assertEquals(expected, new HashSet<Object>(contents));
+        assertTrue(expected.contains(contents.get(500)));
+
+        SerializableSet deserialized = new SerializableSet(serialized);
+        assertEquals(expected, deserialized);
+        assertEquals(expected.hashCode(), deserialized.hashCode());
+        assertEquals(expected, new SerializableSet(deserialized.serialize()));
+    }
+
+    private interface Generator {
+        Object next();
+    }
+
+    private void compareWithHashSet(CompactSet compact, Generator generator) {
+        Set<Object> expected = new HashSet<Object>();
+        for (int i = 0; i < 20000; i++) {
+            Object value = generator.next();
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), compact.remove(value));
+            } else {
+                assertEquals(expected.add(value), compact.add(value));
+            }
+            assertEquals(expected.size(), compact.size());
+        }
+        assertEquals(expected, compact);
+        assertEquals(expected, new HashSet<Object>(compact));
+
+        List<Object> removed = new ArrayList<Object>();
+        for (Iterator<Object> it = compact.iterator(); it.hasNext(); ) {
+            Object value = it.next();
+            if (random.nextBoolean()) {
+                it.remove();
+                removed.add(value);
+            }
+        }
+        expected.removeAll(removed);
+        assertEquals(expected, compact);
+        compact.clear();
+        assertTrue(compact.isEmpty());
+        assertFalse(compact.contains(generator.next()));
+    }
+
+    private static void assertCompact(Class<?> type, List<Object> contents) {
+        assertEquals(type, CompactSet.copyOf(contents).getClass());
+        assertEquals(new HashSet<Object>(contents), CompactSet.copyOf(contents));
+    }
+}
@@ -0,0 +1,122 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AsyncConfigurationIOTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSaveThenLoad() throws Exception {
+        AsyncConfigurationIO io = new AsyncConfigurationIO(2);
+        File file = new File(folder.getRoot(), "players/steve.json");
+        JsonConfiguration config = new JsonConfiguration();
+        config.set("balance", 10);
+        io.save(config, file);
+        assertEquals(10, io.load(file).get().getInt("balance"));
+        io.shutdown();
+        assertEquals(1, folder.getRoot().listFiles()[0].listFiles().length);
+    }
+
+    @Test
+    public void testShortFileName() throws Exception {
+        AsyncConfigurationIO io = new AsyncConfigurationIO(1);
+        File file = new File(folder.getRoot(), "a");
+        JsonConfiguration config = new JsonConfiguration();
+        config.set("balance", 10);
+        io.save(config, file).get();
+        io.shutdown();
+        assertEquals(10, JsonConfiguration.loadConfiguration(file).getInt("balance"));
+    }
+
+    @Test
+    public void testSnapshotAndCoalescing() throws Exception {
+        List<Runnable> queued = new ArrayList<Runnable>();
+        AsyncConfigurationIO io = new AsyncConfigurationIO(queued::add);
+        File file = new File(folder.getRoot(), "steve.json");
+        JsonConfiguration config = new JsonConfiguration();
+
+        config.set("balance", 1);
+        CompletableFuture<Void> first = io.save(config, file);
+        config.set("balance", 2);
+        CompletableFuture<Void> second = io.save(config, file);
+        config.set("balance", 3);
+
+        assertSame(first, second);
+        assertEquals(1, queued.size());
+        queued.get(0).run();
+        assertTrue(first.isDone());
+        assertEquals(2, JsonConfiguration.loadConfiguration(file).getInt("balance"));
+    }
+
+    @Test
+    public void testLoadFailureCompletesExceptionally() throws Exception {
+        AsyncConfigurationIO io = new AsyncConfigurationIO(1);
+        CompletableFuture<JsonConfiguration> future = io.load(new File(folder.getRoot(), "missing.json"));
+        try {
+            future.join();
+            fail();
+        } catch (Exception e) {
+            assertTrue(future.isCompletedExceptionally());
+        }
+        io.shutdown();
+    }
+
+    @Test
+    public void testLoadWithFactory() throws Exception {
+        File file = new File(folder.getRoot(), "steve.json");
+        JsonConfiguration config = new JsonConfiguration();
+        config.set("name", "a name longer than the limit");
+        config.save(file);
+
+        AsyncConfigurationIO io = new AsyncConfigurationIO(1);
+        CompletableFuture<JsonConfiguration> future = io.load(file, () -> {
+            JsonConfiguration limited = new JsonConfiguration();
+            limited.options().maxStringLength(4);
+            return limited;
+        });
+        try {
+            future.join();
+            fail();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof InvalidConfigurationException);
+        }
+        ConcurrentJsonConfiguration concurrent = io.load(file, ConcurrentJsonConfiguration::new).get();
+        assertEquals("a name longer than the limit", concurrent.getString("name"));
+        io.shutdown();
+    }
+
+    @Test
+    public void testShutdownRejectsWork() throws Exception {
+        AsyncConfigurationIO io = new AsyncConfigurationIO(Runnable::run);
+        io.shutdown();
+        File file = new File(folder.getRoot(), "steve.json");
+        CompletableFuture<Void> save = io.save(new JsonConfiguration(), file);
+        assertTrue(save.isCompletedExceptionally());
+        assertTrue(io.load(file).isCompletedExceptionally());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testShutdownTimesOut() throws Exception {
+        List<Runnable> queued = new ArrayList<Runnable>();
+        AsyncConfigurationIO io = new AsyncConfigurationIO(queued::add);
+        io.save(new JsonConfiguration(), new File(folder.getRoot(), "steve.json"));
+        assertFalse(io.shutdown(10, TimeUnit.MILLISECONDS));
+        queued.get(0).run();
+        assertTrue(io.shutdown(10, TimeUnit.MILLISECONDS));
+    }
+}
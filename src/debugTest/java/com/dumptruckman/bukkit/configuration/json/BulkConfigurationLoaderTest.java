@@ -0,0 +1,59 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class BulkConfigurationLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLoadDirectory() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            JsonConfiguration config = new JsonConfiguration();
+            config.set("id", i);
+            config.save(new File(folder.getRoot(), i + ".json"));
+        }
+        File broken = new File(folder.getRoot(), "broken.json");
+        try (Writer writer = new FileWriter(broken)) {
+            writer.write("{\"id\":");
+        }
+        new File(folder.getRoot(), "notes.txt").createNewFile();
+
+        BulkConfigurationLoader.Result result = new BulkConfigurationLoader().loadDirectory(folder.getRoot());
+
+        assertEquals(50, result.getConfigurations().size());
+        assertEquals(7, result.getConfigurations().get(new File(folder.getRoot(), "7.json")).getInt("id"));
+        assertEquals(1, result.getFailures().size());
+        assertTrue(result.getFailures().containsKey(broken));
+        assertTrue(result.getBytesRead() > 0);
+    }
+
+    @Test
+    public void testFactory() throws Exception {
+        JsonConfiguration config = new JsonConfiguration();
+        config.set("name", "a name longer than the limit");
+        File file = new File(folder.getRoot(), "player.json");
+        config.save(file);
+
+        BulkConfigurationLoader.Result result = new BulkConfigurationLoader(ForkJoinPool.commonPool(), () -> {
+            JsonConfiguration limited = new JsonConfiguration();
+            limited.options().maxStringLength(4);
+            return limited;
+        }).loadAll(Collections.singletonList(file));
+
+        assertTrue(result.getConfigurations().isEmpty());
+        assertTrue(result.getFailures().get(file) instanceof InvalidConfigurationException);
+    }
+}
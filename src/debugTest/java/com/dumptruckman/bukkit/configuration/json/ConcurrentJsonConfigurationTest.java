@@ -0,0 +1,109 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentJsonConfigurationTest {
+
+    private static final String JSON = "{\"name\":\"test\",\"a\":{\"x\":1,\"b\":{\"y\":\"z\"}},\"list\":[1,2],"
+            + "\"set\":{\"==\":\"set\",\"contents\":[1,2]}}";
+
+    private ConcurrentJsonConfiguration config;
+
+    @Before
+    public void setUp() throws Exception {
+        config = new ConcurrentJsonConfiguration();
+        config.loadFromString(JSON);
+    }
+
+    @Test
+    public void testBehavesLikeJsonConfiguration() throws Exception {
+        JsonConfiguration plain = new JsonConfiguration();
+        plain.loadFromString(JSON);
+        assertEquals(plain.saveToString(), config.saveToString());
+        assertEquals(plain.getKeys(true), config.getKeys(true));
+        assertEquals(plain.getConfigurationSection("a").getKeys(true),
+                config.getConfigurationSection("a").getKeys(true));
+
+        for (JsonConfiguration c : Arrays.asList(plain, config)) {
+            c.set("a.b.y", "changed");
+            c.set("new.deep.value", 5);
+            c.set("name", null);
+            c.createSection("empty");
+            c.getConfigurationSection("a").set("x", 2);
+        }
+        assertEquals(plain.saveToString(), config.saveToString());
+        assertEquals(2, config.getInt("a.x"));
+        assertEquals("a.b", config.getConfigurationSection("a.b").getCurrentPath());
+        assertEquals(Arrays.asList(1, 2), config.getList("list"));
+    }
+
+    @Test
+    public void testSectionsAreLiveViews() {
+        ConfigurationSection a = config.getConfigurationSection("a");
+        config.set("a.x", 10);
+        assertEquals(10, a.getInt("x"));
+        a.set("b.y", "view");
+        assertEquals("view", config.getString("a.b.y"));
+    }
+
+    @Test
+    public void testConcurrentReadsAndWrites() throws Exception {
+        final int writers = 4;
+        final int readers = 4;
+        final int rounds = 2000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int w = 0; w < writers; w++) {
+            final int id = w;
+            threads.add(new Thread(() -> run(start, failure, () -> {
+                for (int i = 0; i < rounds; i++) {
+                    config.set("writer" + id + ".key" + i, i);
+                    config.set("writer" + id + ".last", i);
+                }
+            })));
+        }
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> run(start, failure, () -> {
+                for (int i = 0; i < rounds; i++) {
+                    assertEquals(1, config.getInt("a.x"));
+                    config.getKeys(true);
+                    assertTrue(config.saveToString().startsWith("{\"name\":\"test\""));
+                }
+            })));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        for (int w = 0; w < writers; w++) {
+            assertEquals(rounds, config.getConfigurationSection("writer" + w).getKeys(false).size() - 1);
+            assertEquals(rounds - 1, config.getInt("writer" + w + ".last"));
+        }
+    }
+
+    private static void run(CountDownLatch start, AtomicReference<Throwable> failure, Runnable task) {
+        try {
+            start.await();
+            task.run();
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+    }
+}
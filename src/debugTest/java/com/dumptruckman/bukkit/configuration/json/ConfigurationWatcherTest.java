@@ -0,0 +1,102 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConfigurationWatcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ConfigurationWatcher watcher;
+    private final BlockingQueue<Object> events = new LinkedBlockingQueue<Object>();
+    private final ConfigurationWatcher.Listener listener = new ConfigurationWatcher.Listener() {
+        @Override
+        public void reloaded(ConfigurationWatcher.Change change) {
+            events.add(change);
+        }
+
+        @Override
+        public void failed(File file, Exception e) {
+            events.add(e);
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        watcher = new ConfigurationWatcher(50, TimeUnit.MILLISECONDS, null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        watcher.close();
+    }
+
+    @Test
+    public void testReloadsChangedPaths() throws Exception {
+        File file = write(folder.newFile("a.json"), "{\"a\":1,\"b\":{\"c\":2,\"d\":3}}");
+        ConfigurationWatcher.Watch watch = watcher.watch(file, listener);
+        assertEquals(1, watch.getConfiguration().getInt("a"));
+
+        write(file, "{\"a\":1,\"b\":{\"c\":5},\"e\":true}");
+        ConfigurationWatcher.Change change = (ConfigurationWatcher.Change) events.poll(10, TimeUnit.SECONDS);
+        assertNotNull(change);
+        assertEquals(new TreeSet<String>(Arrays.asList("b.c", "b.d", "e")), change.getChangedPaths());
+        assertEquals(2, change.getPrevious().getInt("b.c"));
+        assertEquals(5, change.getConfiguration().getInt("b.c"));
+        assertSame(change.getConfiguration(), watch.getConfiguration());
+    }
+
+    @Test
+    public void testUnchangedValuesAreNotReported() throws Exception {
+        File file = write(folder.newFile("a.json"), "{\"a\":1}");
+        ConfigurationWatcher.Watch watch = watcher.watch(file, listener);
+        write(file, "{\"a\":1}");
+        write(file, "{ \"a\" : 1 }");
+        assertNull(events.poll(500, TimeUnit.MILLISECONDS));
+        write(file, "{\"a\":2}");
+        assertTrue(events.poll(10, TimeUnit.SECONDS) instanceof ConfigurationWatcher.Change);
+        assertEquals(2, watch.getConfiguration().getInt("a"));
+    }
+
+    @Test
+    public void testInvalidFileKeepsConfiguration() throws Exception {
+        File file = write(folder.newFile("a.json"), "{\"a\":1}");
+        ConfigurationWatcher.Watch watch = watcher.watch(file, listener);
+        write(file, "{\"a\":");
+        assertTrue(events.poll(10, TimeUnit.SECONDS) instanceof Exception);
+        assertEquals(1, watch.getConfiguration().getInt("a"));
+    }
+
+    @Test
+    public void testClosedWatchIsNotReloaded() throws Exception {
+        File file = write(folder.newFile("a.json"), "{\"a\":1}");
+        File other = write(folder.newFile("b.json"), "{\"b\":1}");
+        watcher.watch(file, listener).close();
+        watcher.watch(other, listener);
+        write(file, "{\"a\":2}");
+        write(other, "{\"b\":2}");
+        ConfigurationWatcher.Change change = (ConfigurationWatcher.Change) events.poll(10, TimeUnit.SECONDS);
+        assertEquals(other, change.getFile());
+        assertNull(events.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    private static File write(File file, String contents) throws Exception {
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
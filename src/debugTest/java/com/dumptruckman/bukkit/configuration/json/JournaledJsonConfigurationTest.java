@@ -0,0 +1,135 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class JournaledJsonConfigurationTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "balances.json");
+        Files.write(file.toPath(), "{\"players\":{\"bob\":{\"balance\":1.5}},\"name\":\"test\"}"
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testChangesAreAppendedAndReplayed() throws Exception {
+        final String before = contents(file);
+        final JournaledJsonConfiguration config = JournaledJsonConfiguration.open(file);
+        config.set("players.bob.balance", 2.5D);
+        config.set("players.alice.balance", 3);
+        config.set("players.alice.kits", Arrays.asList("a", "b"));
+        config.set("name", null);
+        config.createSection("empty");
+
+        assertEquals(before, contents(file));
+        final String journal = contents(config.getJournalFile());
+        assertTrue(journal, journal.startsWith("{\"set\":[\"players\",\"bob\",\"balance\"],\"value\":2.5}\n"));
+        assertTrue(journal, journal.contains("{\"remove\":[\"name\"]}\n"));
+
+        final JournaledJsonConfiguration reopened = JournaledJsonConfiguration.open(file);
+        assertEquals(config.saveToString(), reopened.saveToString());
+        assertEquals(2.5D, reopened.getDouble("players.bob.balance"), 0D);
+        assertEquals(Arrays.asList("a", "b"), reopened.getStringList("players.alice.kits"));
+        assertFalse(reopened.contains("name"));
+        assertTrue(reopened.isConfigurationSection("empty"));
+        // Replaying does not journal the changes once more.
+        assertEquals(journal, contents(reopened.getJournalFile()));
+    }
+
+    @Test
+    public void testLoadingIsNotJournaled() throws Exception {
+        final JournaledJsonConfiguration config = JournaledJsonConfiguration.open(file);
+        assertEquals(1.5D, config.getDouble("players.bob.balance"), 0D);
+        config.getKeys(true);
+        assertEquals(0, config.getJournalSize());
+    }
+
+    @Test
+    public void testCompactsBySize() throws Exception {
+        final JournaledJsonConfiguration config = JournaledJsonConfiguration.open(file, 200, 0, TimeUnit.SECONDS);
+        for (int i = 0; i < 20; i++) {
+            config.set("counter", i);
+        }
+        assertTrue(config.getJournalSize() < 200);
+        final JsonConfiguration saved = new JsonConfiguration();
+        saved.load(file);
+        assertTrue(saved.getInt("counter") > 0);
+        assertEquals(config.saveToString(), JournaledJsonConfiguration.open(file).saveToString());
+    }
+
+    @Test
+    public void testCompactsByAge() throws Exception {
+        final JournaledJsonConfiguration config = JournaledJsonConfiguration.open(file, 1024, 1,
+                TimeUnit.NANOSECONDS);
+        config.set("counter", 1);
+        Thread.sleep(1);
+        config.set("counter", 2);
+        assertEquals(0, config.getJournalSize());
+        final JsonConfiguration saved = new JsonConfiguration();
+        saved.load(file);
+        assertEquals(2, saved.getInt("counter"));
+    }
+
+    @Test
+    public void testCloseCompacts() throws Exception {
+        final JournaledJsonConfiguration config = JournaledJsonConfiguration.open(file);
+        config.set("players.bob.balance", 7);
+        config.close();
+        assertEquals(0, config.getJournalFile().length());
+        final JsonConfiguration saved = new JsonConfiguration();
+        saved.load(file);
+        assertEquals(7, saved.getInt("players.bob.balance"));
+    }
+
+    @Test
+    public void testTruncatedTailIsDropped() throws Exception {
+        final JournaledJsonConfiguration config = JournaledJsonConfiguration.open(file);
+        config.set("players.bob.balance", 4);
+        final long complete = config.getJournalSize();
+        try (FileOutputStream out = new FileOutputStream(config.getJournalFile(), true)) {
+            out.write("{\"set\":[\"players\",\"bob\",\"bal".getBytes(StandardCharsets.UTF_8));
+        }
+
+        final JournaledJsonConfiguration reopened = JournaledJsonConfiguration.open(file);
+        assertEquals(4, reopened.getInt("players.bob.balance"));
+        assertEquals(complete, reopened.getJournalSize());
+        reopened.set("name", "after");
+        assertEquals("after", JournaledJsonConfiguration.open(file).getString("name"));
+    }
+
+    @Test
+    public void testCorruptLineFailsToOpen() throws Exception {
+        Files.write(new File(file.getPath() + ".journal").toPath(),
+                "{\"set\":[\"a\"],\"value\":1}\n{\"set\":[\"a\"],\"value\":}\n{\"set\":[\"a\"],\"value\":2}\n"
+                        .getBytes(StandardCharsets.UTF_8));
+        try {
+            JournaledJsonConfiguration.open(file);
+            fail();
+        } catch (InvalidConfigurationException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("line 2"));
+        }
+    }
+
+    private static String contents(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,167 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import net.minidev.json.JSONValue;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that every {@link JsonBackend} loads the same values and writes the same json.
+ */
+@RunWith(Parameterized.class)
+public class JsonBackendConformanceTest {
+
+    private static final String JSON = "{\"int\":1,\"negative\":-2147483648,\"long\":2147483648,\"minLong\":"
+            + "-9223372036854775808,\"double\":1.5,\"exponent\":1e3,\"zero\":0.0,\"true\":true,\"false\":false,"
+            + "\"null\":null,\"string\":\"\\u00e9\\n\\\"\\/\\\\ \\ud83d\\ude00\",\"section\":{\"a\":{\"b\":2},"
+            + "\"empty\":{}},\"list\":[1,2147483648,\"x\",[true,null],{\"k\":\"v\"}],\"set\":{\"==\":\"set\","
+            + "\"contents\":[1,2]}}";
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> backends() {
+        return Arrays.asList(new Object[][] {{JsonBackend.STREAMING}, {JsonBackend.JSON_SMART}});
+    }
+
+    private final JsonBackend backend;
+
+    public JsonBackendConformanceTest(JsonBackend backend) {
+        this.backend = backend;
+    }
+
+    private JsonConfiguration newConfig() {
+        JsonConfiguration config = new JsonConfiguration();
+        config.options().backend(backend);
+        return config;
+    }
+
+    @Test
+    public void testNumberTyping() throws Exception {
+        JsonConfiguration config = newConfig();
+        config.loadFromString(JSON);
+        assertEquals(Integer.valueOf(1), config.get("int"));
+        assertEquals(Integer.valueOf(Integer.MIN_VALUE), config.get("negative"));
+        assertEquals(Long.valueOf(2147483648L), config.get("long"));
+        assertEquals(Long.valueOf(Long.MIN_VALUE), config.get("minLong"));
+        assertEquals(Double.valueOf(1.5D), config.get("double"));
+        assertEquals(Double.valueOf(1000D), config.get("exponent"));
+        assertEquals(Double.valueOf(0D), config.get("zero"));
+        assertEquals(Arrays.asList(1, 2147483648L, "x", Arrays.asList(true, null), Collections.singletonMap("k", "v")),
+                config.getList("list"));
+    }
+
+    @Test
+    public void testSameValuesAsReference() throws Exception {
+        JsonConfiguration reference = new JsonConfiguration();
+        reference.loadFromString(JSON);
+        JsonConfiguration config = newConfig();
+        config.load(new StringReader(JSON));
+        assertSameValues(reference, config);
+        assertEquals("\u00e9\n\"/\\ \ud83d\ude00", config.getString("string"));
+        assertTrue(config.get("set") instanceof Set);
+        assertTrue(config.getConfigurationSection("section.empty").getKeys(false).isEmpty());
+        assertFalse(config.contains("null"));
+    }
+
+    @Test
+    public void testSameOutputAsReference() throws Exception {
+        JsonConfiguration config = newConfig();
+        config.set("name", "Steve \"the\" builder/miner\n\t\u0001\u2028 \u00e9");
+        config.set("numbers.int", 3);
+        config.set("numbers.long", 1500000000000L);
+        config.set("numbers.double", 67.0D);
+        config.set("flags.enabled", true);
+        config.set("list", Arrays.asList("a", 1, Arrays.asList(2.5D, null), Collections.singletonMap("k", "v")));
+        config.set("array", new Object[] {"x", "y"});
+        config.set("set", new HashSet<Object>(Arrays.asList(1, 2, 3)));
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("inner", Collections.singletonMap("deep", 1));
+        config.set("map", map);
+        config.createSection("empty");
+
+        String expected = JSONValue.toJSONString(SerializationHelper.serialize(config.getValues(false)));
+        assertEquals(expected, config.saveToString());
+        StringWriter writer = new StringWriter();
+        assertEquals(expected.length(), backend.save(SerializationHelper.serialize(config), writer, null));
+        assertEquals(expected, writer.toString());
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        JsonConfiguration config = newConfig();
+        config.loadFromString(JSON);
+        JsonConfiguration loaded = newConfig();
+        loaded.loadFromString(config.saveToString());
+        assertSameValues(config, loaded);
+    }
+
+    @Test
+    public void testSameNodeCount() throws Exception {
+        JsonConfiguration reference = new JsonConfiguration();
+        assertEquals(JsonBackend.STREAMING.load(JSON, reference), backend.load(JSON, newConfig()));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        JsonConfiguration config = newConfig();
+        config.load(new StringReader("  "));
+        assertTrue(config.getKeys(true).isEmpty());
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void testInvalidJson() throws Exception {
+        newConfig().loadFromString("{\"a\":}");
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void testTopLevelMustBeAnObject() throws Exception {
+        newConfig().loadFromString("[1,2]");
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void testTopLevelMustNotBeSerialized() throws Exception {
+        newConfig().loadFromString("{\"==\":\"set\",\"contents\":[1]}");
+    }
+
+    private static void assertSameValues(ConfigurationSection expected, ConfigurationSection actual) {
+        Map<String, Object> expectedValues = expected.getValues(true);
+        Map<String, Object> actualValues = actual.getValues(true);
+        assertEquals(expectedValues.keySet(), actualValues.keySet());
+        for (Map.Entry<String, Object> entry : expectedValues.entrySet()) {
+            Object value = actualValues.get(entry.getKey());
+            if (entry.getValue() instanceof ConfigurationSection) {
+                assertTrue(entry.getKey(), value instanceof ConfigurationSection);
+            } else {
+                assertEquals(entry.getKey(), entry.getValue(), value);
+                assertEquals(entry.getKey(), entry.getValue().getClass(), value.getClass());
+                if (value instanceof List) {
+                    assertEquals(entry.getKey(), types((List<?>) entry.getValue()), types((List<?>) value));
+                }
+            }
+        }
+    }
+
+    private static List<Object> types(List<?> list) {
+        Object[] types = new Object[list.size()];
+        for (int i = 0; i < types.length; i++) {
+            Object element = list.get(i);
+            types[i] = element instanceof List ? types((List<?>) element) : element == null ? null : element.getClass();
+        }
+        return Arrays.asList(types);
+    }
+}
@@ -0,0 +1,94 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class JsonBinaryFormatTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JsonConfiguration config;
+
+    @Before
+    public void setUp() throws Exception {
+        config = new JsonConfiguration();
+        config.set("string", "text with \u00e9 and \ud83d\ude00");
+        config.set("int", 42);
+        config.set("negative", -7);
+        config.set("long", 5000000000L);
+        config.set("smallLong", 5L);
+        config.set("big", new BigInteger("123456789012345678901234567890"));
+        config.set("double", 1.25D);
+        config.set("float", 0.1F);
+        config.set("nan", Double.NaN);
+        config.set("bool", true);
+        config.set("list", Arrays.asList("a", 1, Arrays.asList(2, 3)));
+        config.set("set", new HashSet<Integer>(Arrays.asList(1, 2, 3)));
+        for (int i = 0; i < 100; i++) {
+            config.set("items.item" + i + ".type", "DIAMOND_PICKAXE");
+            config.set("items.item" + i + ".amount", i);
+        }
+    }
+
+    @Test
+    public void testSameValuesAsJson() throws Exception {
+        JsonConfiguration fromJson = new JsonConfiguration();
+        fromJson.loadFromString(config.saveToString());
+
+        JsonConfiguration fromBinary = new JsonConfiguration();
+        fromBinary.loadBinary(new ByteArrayInputStream(toBytes(config)));
+
+        assertEquals(fromJson.getValues(true).keySet(), fromBinary.getValues(true).keySet());
+        assertEquals(fromJson.saveToString(), fromBinary.saveToString());
+        assertEquals(Integer.class, fromBinary.get("smallLong").getClass());
+        assertEquals(Long.class, fromBinary.get("long").getClass());
+        assertEquals(fromJson.get("float"), fromBinary.get("float"));
+        assertNull(fromBinary.get("nan"));
+    }
+
+    @Test
+    public void testRepeatedStringsAreStoredOnce() throws Exception {
+        byte[] bytes = toBytes(config);
+        assertTrue(bytes.length < config.saveToString().length() / 2);
+    }
+
+    @Test
+    public void testFilesAreDetectedByHeader() throws Exception {
+        File binary = folder.newFile("binary.json");
+        config.options().binary(true);
+        config.save(binary);
+        File text = folder.newFile("text.json");
+        config.options().binary(false);
+        config.save(text);
+
+        JsonConfiguration fromBinary = JsonConfiguration.loadConfiguration(binary);
+        JsonConfiguration fromText = JsonConfiguration.loadConfiguration(text);
+        assertEquals(fromText.saveToString(), fromBinary.saveToString());
+        assertEquals(99, fromBinary.getInt("items.item99.amount"));
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void testTruncatedInputFails() throws Exception {
+        byte[] bytes = toBytes(config);
+        new JsonConfiguration().loadBinary(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 3)));
+    }
+
+    private static byte[] toBytes(JsonConfiguration config) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        config.saveBinary(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,121 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class JsonCompressionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JsonConfiguration config;
+
+    @Before
+    public void setUp() throws Exception {
+        // Roughly the shape of player data: inventories of items whose meta is kept as a base64 blob.
+        final Random random = new Random(42);
+        config = new JsonConfiguration();
+        for (int player = 0; player < 50; player++) {
+            final String path = "players.player" + player;
+            config.set(path + ".balance", player * 1.5D);
+            config.set(path + ".lastSeen", 1500000000000L + player);
+            for (int slot = 0; slot < 36; slot++) {
+                final byte[] meta = new byte[48];
+                for (int i = 0; i < meta.length; i++) {
+                    // Item meta repeats a lot of structure; only some of its bytes vary.
+                    meta[i] = (byte) (i % 4 == 0 ? random.nextInt(256) : i);
+                }
+                config.set(path + ".inventory.slot" + slot + ".type", "DIAMOND_SWORD");
+                config.set(path + ".inventory.slot" + slot + ".amount", 1 + random.nextInt(64));
+                config.set(path + ".inventory.slot" + slot + ".internal", Base64.getEncoder().encodeToString(meta));
+            }
+        }
+    }
+
+    @Test
+    public void testExtensionCompresses() throws Exception {
+        final File file = folder.newFile("data.json.gz");
+        config.save(file);
+        assertTrue(isGzip(file));
+
+        final JsonConfiguration loaded = new JsonConfiguration();
+        loaded.load(file);
+        assertEquals(config.saveToString(), loaded.saveToString());
+    }
+
+    @Test
+    public void testOptionCompressesAndLoadDetectsMagic() throws Exception {
+        final File file = folder.newFile("data.json");
+        config.options().compressed(true).compressionLevel(1);
+        config.save(file);
+        assertTrue(isGzip(file));
+
+        final JsonConfiguration loaded = new JsonConfiguration();
+        loaded.load(file);
+        assertEquals(config.saveToString(), loaded.saveToString());
+
+        config.options().compressed(false);
+        config.save(file);
+        assertFalse(isGzip(file));
+    }
+
+    @Test
+    public void testCompressedBinary() throws Exception {
+        final File file = folder.newFile("data.jsb.gz");
+        config.options().binary(true);
+        config.save(file);
+        assertTrue(isGzip(file));
+
+        final JsonConfiguration loaded = new JsonConfiguration();
+        loaded.load(file);
+        assertEquals(config.saveToString(), loaded.saveToString());
+    }
+
+    @Test
+    public void testAsyncSaveCompresses() throws Exception {
+        final File file = new File(folder.getRoot(), "async.json.gz");
+        final AsyncConfigurationIO io = new AsyncConfigurationIO(1);
+        try {
+            io.save(config, file).get();
+        } finally {
+            io.shutdown();
+        }
+        assertTrue(isGzip(file));
+        final JsonConfiguration loaded = new JsonConfiguration();
+        loaded.load(file);
+        assertEquals(config.saveToString(), loaded.saveToString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLevel() {
+        config.options().compressionLevel(10);
+    }
+
+    @Test
+    public void testBestCompressionIsUnderAThird() throws Exception {
+        final File plain = new File(folder.getRoot(), "plain.json");
+        config.save(plain);
+        final File compressed = new File(folder.getRoot(), "level9.json.gz");
+        config.options().compressionLevel(9);
+        config.save(compressed);
+        assertTrue(compressed.length() * 3 < plain.length());
+    }
+
+    private static boolean isGzip(final File file) throws Exception {
+        try (InputStream input = new FileInputStream(file)) {
+            return input.read() == (GZIPInputStream.GZIP_MAGIC & 0xFF)
+                    && input.read() == GZIPInputStream.GZIP_MAGIC >> 8;
+        }
+    }
+}
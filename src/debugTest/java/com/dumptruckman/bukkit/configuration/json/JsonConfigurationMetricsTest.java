@@ -0,0 +1,101 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.util.InMemoryConfigurationMetrics;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JsonConfigurationMetricsTest {
+
+    private static final String JSON = "{\"name\":\"test\",\"players\":{\"bob\":{\"balance\":1.5}},"
+            + "\"set\":{\"==\":\"set\",\"contents\":[1,2]},\"list\":[1,2]}";
+
+    public static class Broken implements ConfigurationSerializable {
+        @Override
+        public Map<String, Object> serialize() {
+            throw new IllegalStateException("broken");
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private InMemoryConfigurationMetrics metrics;
+    private JsonConfiguration config;
+
+    @Before
+    public void setUp() {
+        metrics = new InMemoryConfigurationMetrics();
+        config = new JsonConfiguration();
+        config.options().metrics(metrics);
+    }
+
+    @Test
+    public void testLoadFromString() throws Exception {
+        config.loadFromString(JSON);
+        assertEquals(1, metrics.getLoads().getCount());
+        assertEquals(JSON.length(), metrics.getLoads().getSize());
+        // The set counts its type, its contents and both elements besides itself, and the list its elements.
+        assertEquals(12, metrics.getValuesLoaded());
+        assertEquals(1, metrics.getDeserializations().get("set").getCount());
+        assertEquals(1, metrics.getFileLoads().get("").getCount());
+    }
+
+    @Test
+    public void testFiles() throws Exception {
+        config.loadFromString(JSON);
+        File file = folder.newFile("metrics.json");
+        config.save(file);
+        assertEquals(file.length(), metrics.getFileSaves().get(file.getPath()).getSize());
+
+        JsonConfiguration loaded = new JsonConfiguration();
+        loaded.options().metrics(metrics).binary(true);
+        loaded.load(file);
+        assertEquals(file.length(), metrics.getFileLoads().get(file.getPath()).getSize());
+        loaded.save(file);
+        assertEquals(2, metrics.getFileSaves().get(file.getPath()).getCount());
+        loaded.load(file);
+        assertEquals(2, metrics.getFileLoads().get(file.getPath()).getCount());
+        assertEquals(3, metrics.getDeserializations().get("set").getCount());
+    }
+
+    @Test
+    public void testSwallowedErrors() throws Exception {
+        config.set("broken", new Broken());
+        config.saveToString();
+        config.saveBinary(new ByteArrayOutputStream());
+        assertEquals(Long.valueOf(2), metrics.getSwallowedErrors().get("serialize"));
+
+        JsonConfiguration.loadConfiguration(config, new File(folder.getRoot(), "missing.json"));
+        assertEquals(Long.valueOf(1), metrics.getSwallowedErrors().get("load"));
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        config.loadFromString(JSON);
+        metrics.reset();
+        assertEquals(0, metrics.getLoads().getCount());
+        assertTrue(metrics.getDeserializations().isEmpty());
+    }
+
+    @Test
+    public void testRegister() throws Exception {
+        ObjectName name = metrics.register("com.dumptruckman.test:type=ConfigurationMetrics");
+        try {
+            config.loadFromString(JSON);
+            assertEquals(12L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "ValuesLoaded"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import net.minidev.json.JSONValue;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JsonIncrementalSaveTest {
+
+    private JsonConfiguration config;
+
+    @Before
+    public void setUp() throws Exception {
+        config = new JsonConfiguration();
+        config.options().incrementalSaving(true);
+        config.loadFromString("{\"a\":{\"x\":1,\"inner\":{\"y\":\"z\"}},\"b\":{\"x\":2},\"c\":{\"list\":[1,2]}}");
+    }
+
+    @Test
+    public void testUnchangedSectionsAreReused() throws Exception {
+        config.saveToString();
+        JsonSectionWriter.Fragment a = section("a").getSavedJson();
+        JsonSectionWriter.Fragment b = section("b").getSavedJson();
+        assertEquals("{\"x\":1,\"inner\":{\"y\":\"z\"}}", a.toString());
+        assertEquals("{\"x\":2}", b.toString());
+        // The json of a section is referred to by the section containing it, not copied.
+        assertTrue(Arrays.asList(a.parts).contains(section("a.inner").getSavedJson()));
+
+        config.set("a.inner.y", "changed");
+        assertNull(section("a").getSavedJson());
+        assertNull(section("a.inner").getSavedJson());
+        assertSame(b, section("b").getSavedJson());
+
+        assertEquals(freshSave(), config.saveToString());
+        assertSame(b, section("b").getSavedJson());
+    }
+
+    @Test
+    public void testSectionsWithMutableValuesAreNotReused() throws Exception {
+        config.saveToString();
+        assertNull(section("c").getSavedJson());
+
+        @SuppressWarnings("unchecked")
+        List<Object> list = (List<Object>) config.getList("c.list");
+        list.add(3);
+        assertEquals(freshSave(), config.saveToString());
+        assertTrue(config.saveToString().contains("[1,2,3]"));
+    }
+
+    @Test
+    public void testCreateSectionInvalidates() throws Exception {
+        config.saveToString();
+        config.createSection("b.new");
+        config.set("b.new.key", new ArrayList<Object>(Arrays.asList("v")));
+        assertNull(section("b").getSavedJson());
+        assertEquals(freshSave(), config.saveToString());
+    }
+
+    @Test
+    public void testMovedSectionIsWrittenAgain() throws Exception {
+        config.set("b.inner.y", "z");
+        config.set("a.moved", config.getConfigurationSection("b.inner"));
+        config.saveToString();
+        assertNull(section("a").getSavedJson());
+
+        config.getConfigurationSection("a.moved").set("y", "changed");
+        assertEquals(freshSave(), config.saveToString());
+        assertTrue(config.saveToString().contains("\"moved\":{\"y\":\"changed\"}"));
+    }
+
+    @Test
+    public void testDisabledKeepsNothing() throws Exception {
+        config.options().incrementalSaving(false);
+        assertEquals(freshSave(), config.saveToString());
+        assertNull(section("a").getSavedJson());
+        assertNull(section("b").getSavedJson());
+    }
+
+    private JsonSection section(String path) {
+        return (JsonSection) config.getConfigurationSection(path);
+    }
+
+    private String freshSave() {
+        return JSONValue.toJSONString(SerializationHelper.serialize(config));
+    }
+}
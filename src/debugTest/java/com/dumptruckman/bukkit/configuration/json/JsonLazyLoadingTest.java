@@ -0,0 +1,80 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.MemorySection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JsonLazyLoadingTest {
+
+    private static final String JSON = "{\"name\":\"test\",\"players\":{\"bob\":{\"balance\":1.5,\"home\":{\"x\":1,"
+            + "\"y\":64}},\"alice\":{\"balance\":2,\"kits\":[\"a\",{\"b\":\"c\\/d\"}]}},\"set\":{\"==\":\"set\","
+            + "\"contents\":[1,2]},\"empty\":{},\"list\":[1,[2,3]]}";
+
+    private JsonConfiguration eager;
+    private JsonConfiguration lazy;
+
+    @Before
+    public void setUp() throws Exception {
+        eager = new JsonConfiguration();
+        eager.loadFromString(JSON);
+        lazy = new JsonConfiguration();
+        lazy.options().lazyLoading(true);
+        lazy.loadFromString(JSON);
+    }
+
+    @Test
+    public void testNestedValuesAreNotLoaded() throws Exception {
+        Map<String, Object> raw = rawValues(lazy);
+        assertEquals("test", raw.get("name"));
+        assertTrue(raw.get("players") instanceof LazyValue);
+        assertTrue(raw.get("list") instanceof LazyValue);
+    }
+
+    @Test
+    public void testGetMaterializesOneLevel() throws Exception {
+        assertEquals(1.5D, lazy.getDouble("players.bob.balance"), 0D);
+        ConfigurationSection players = lazy.getConfigurationSection("players");
+        assertTrue(rawValues(players).get("alice") instanceof LazyValue);
+        assertEquals(64, lazy.getInt("players.bob.home.y"));
+    }
+
+    @Test
+    public void testSameValuesAsEager() throws Exception {
+        assertEquals(eager.getKeys(true), lazy.getKeys(true));
+        assertEquals(eager.saveToString(), lazy.saveToString());
+        assertEquals(eager.get("set"), lazy.get("set"));
+        assertEquals(Arrays.asList(1, Arrays.asList(2, 3)), lazy.getList("list"));
+    }
+
+    @Test
+    public void testSetReplacesLazyValue() throws Exception {
+        lazy.set("players.alice.balance", 5);
+        assertEquals(5, lazy.getInt("players.alice.balance"));
+        assertEquals(1.5D, lazy.getDouble("players.bob.balance"), 0D);
+        lazy.set("players", null);
+        assertFalse(lazy.contains("players.bob"));
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void testInvalidNestedJsonFailsOnLoad() throws Exception {
+        JsonConfiguration config = new JsonConfiguration();
+        config.options().lazyLoading(true);
+        config.loadFromString("{\"a\":{\"b\":[1,2,}}");
+    }
+
+    private static Map<String, Object> rawValues(ConfigurationSection section) throws Exception {
+        Field field = MemorySection.class.getDeclaredField("map");
+        field.setAccessible(true);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> map = (Map<String, Object>) field.get(section);
+        return map;
+    }
+}
@@ -0,0 +1,171 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JsonLimitsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testDepth() throws Exception {
+        JsonConfiguration config = new JsonConfiguration();
+        config.options().maxDepth(3);
+        config.loadFromString("{\"a\":{\"b\":{\"c\":1}}}");
+        assertEquals(1, config.getInt("a.b.c"));
+
+        config = new JsonConfiguration();
+        config.options().maxDepth(3);
+        assertInvalid(config, "{\"a\":{\"b\":[1,{\"c\":{}}]}}", "Nesting deeper than 3 levels at path a.b[1],");
+    }
+
+    @Test
+    public void testEntries() throws Exception {
+        JsonConfiguration config = new JsonConfiguration();
+        config.options().maxEntries(2);
+        assertInvalid(config, "{\"a\":{\"x\":1,\"y\":2,\"z\":3}}", "More than 2 entries in an object at path a.z");
+
+        config = new JsonConfiguration();
+        config.options().maxEntries(2);
+        assertInvalid(config, "{\"a\":[1,2,3]}", "More than 2 entries in an array at path a[2]");
+    }
+
+    @Test
+    public void testStringLength() throws Exception {
+        JsonConfiguration config = new JsonConfiguration();
+        config.options().maxStringLength(4);
+        config.loadFromString("{\"name\":\"abcd\"}");
+        assertEquals("abcd", config.getString("name"));
+
+        config = new JsonConfiguration();
+        config.options().maxStringLength(4);
+        assertInvalid(config, "{\"list\":[\"abcde\"]}", "String longer than 4 chars at path list[0]");
+    }
+
+    @Test
+    public void testSize() throws Exception {
+        JsonConfiguration config = new JsonConfiguration();
+        config.options().maxSize(10);
+        assertInvalid(config, "{\"name\":\"too long\"}", "Document larger than 10 chars");
+    }
+
+    @Test
+    public void testLazySectionsAreChecked() throws Exception {
+        JsonConfiguration config = new JsonConfiguration();
+        config.options().lazyLoading(true).maxDepth(2);
+        assertInvalid(config, "{\"a\":{\"b\":{\"c\":1}}}", "Nesting deeper than 2 levels at path a.b");
+    }
+
+    @Test
+    public void testBinary() throws Exception {
+        JsonConfiguration config = new JsonConfiguration();
+        config.set("a.b.c", "value");
+        config.options().binary(true);
+        File file = folder.newFile("data.jsb");
+        config.save(file);
+
+        JsonConfiguration loaded = new JsonConfiguration();
+        loaded.options().maxStringLength(4);
+        try {
+            loaded.load(file);
+            fail();
+        } catch (InvalidConfigurationException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("longer than 4 bytes at path a.b.c"));
+        }
+
+        loaded = new JsonConfiguration();
+        loaded.options().maxDepth(2);
+        try {
+            loaded.load(file);
+            fail();
+        } catch (InvalidConfigurationException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Nesting deeper than 2 levels at path a.b"));
+        }
+    }
+
+    @Test
+    public void testJsonSmartBackend() throws Exception {
+        JsonConfiguration config = new JsonConfiguration();
+        config.options().backend(JsonBackend.JSON_SMART).maxEntries(2);
+        assertInvalid(config, "{\"a\":1,\"b\":2,\"c\":3}", "More than 2 entries in an object at path c");
+
+        config = new JsonConfiguration();
+        config.options().backend(JsonBackend.JSON_SMART).maxEntries(3);
+        config.loadFromString("{\"a\":1,\"b\":2,\"c\":3}");
+        assertEquals(3, config.getInt("c"));
+    }
+
+    @Test
+    public void testInvalidLimit() {
+        try {
+            new JsonConfiguration().options().maxDepth(0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new JsonConfiguration().options().maxSize(-1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testDeepDocumentWithoutLimits() throws Exception {
+        final int depth = 100000;
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            json.append("[");
+        }
+        for (int i = 0; i < depth; i++) {
+            json.append("]");
+        }
+        JsonConfiguration config = new JsonConfiguration();
+        config.loadFromString("{\"deep\":" + json + "}");
+        assertTrue(config.isList("deep"));
+
+        config = new JsonConfiguration();
+        config.options().maxDepth(64);
+        assertInvalid(config, "{\"deep\":" + json + "}", "Nesting deeper than 64 levels");
+    }
+
+    @Test
+    public void testDeserializeDeepMap() {
+        Map<String, Object> root = new LinkedHashMap<String, Object>();
+        Map<String, Object> map = root;
+        for (int i = 0; i < 100000; i++) {
+            Map<String, Object> child = new LinkedHashMap<String, Object>();
+            List<Object> list = new ArrayList<Object>();
+            list.add(child);
+            map.put("next", list);
+            map = child;
+        }
+        map.put("end", true);
+
+        Object result = SerializationHelper.deserialize(root);
+        for (int i = 0; i < 100000; i++) {
+            result = ((List<?>) ((Map<?, ?>) result).get("next")).get(0);
+        }
+        assertEquals(true, ((Map<?, ?>) result).get("end"));
+    }
+
+    private static void assertInvalid(JsonConfiguration config, String json, String expected) {
+        try {
+            config.loadFromString(json);
+            fail();
+        } catch (InvalidConfigurationException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expected));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import net.minidev.json.parser.JSONParser;
+import org.bukkit.configuration.ConfigurationSection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the streaming loader against the parse tree based loading it replaced.  The bytes each allocates are
+ * compared by LoadBenchmark under the gc profiler.
+ */
+public class JsonLoadAllocationTest {
+
+    private String json;
+
+    @Before
+    public void setUp() throws Exception {
+        // Roughly the shape of a player data file: nested sections, lists and serialized sets.
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < 500; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("\"player").append(i).append("\":{\"name\":\"Player").append(i)
+                    .append("\",\"balance\":").append(i * 1.5D)
+                    .append(",\"lastSeen\":").append(1500000000000L + i)
+                    .append(",\"home\":{\"world\":\"world\",\"x\":").append(i).append(",\"y\":64,\"z\":").append(-i)
+                    .append("},\"kits\":[\"starter\",\"daily\",{\"name\":\"vip\",\"uses\":").append(i).append("}]")
+                    .append(",\"unlocked\":{\"==\":\"set\",\"contents\":[1,2,3,").append(i).append("]}}");
+        }
+        json = builder.append('}').toString();
+        new JsonConfiguration();
+    }
+
+    @Test
+    public void testSameValuesAsParseTree() throws Exception {
+        JsonConfiguration streamed = new JsonConfiguration();
+        streamed.loadFromString(json);
+        JsonConfiguration tree = new JsonConfiguration();
+        loadThroughParseTree(tree, json);
+
+        Map<String, Object> expected = tree.getValues(true);
+        Map<String, Object> actual = streamed.getValues(true);
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, Object> entry : expected.entrySet()) {
+            if (!(entry.getValue() instanceof ConfigurationSection)) {
+                assertEquals(entry.getKey(), entry.getValue(), actual.get(entry.getKey()));
+            }
+        }
+    }
+
+    @Test
+    public void testSameValuesFromReader() throws Exception {
+        JsonConfiguration fromString = new JsonConfiguration();
+        fromString.loadFromString(json);
+        JsonConfiguration fromReader = new JsonConfiguration();
+        fromReader.load(new StringReader(json));
+        assertEquals(fromString.saveToString(), fromReader.saveToString());
+    }
+
+    private static void loadThroughParseTree(ConfigurationSection section, String contents) throws Exception {
+        Map<?, ?> input = (Map<?, ?>) new JSONParser(JSONParser.USE_INTEGER_STORAGE).parse(contents);
+        convertMapsToSections(input, section);
+    }
+
+    private static void convertMapsToSections(Map<?, ?> input, ConfigurationSection section) {
+        Object result = SerializationHelper.deserialize(input);
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) result).entrySet()) {
+            if (entry.getValue() instanceof Map) {
+                convertMapsToSections((Map<?, ?>) entry.getValue(), section.createSection(entry.getKey().toString()));
+            } else {
+                section.set(entry.getKey().toString(), entry.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class JsonPathIndexTest {
+
+    private static final String JSON = "{\"name\":\"test\",\"players\":{\"bob\":{\"balance\":1.5,\"home\":{\"x\":1,"
+            + "\"y\":64}},\"alice\":{\"balance\":2}},\"list\":[1,2],\"a\":{\"b\":\"nested\"}}";
+
+    private JsonConfiguration config;
+
+    @Before
+    public void setUp() throws Exception {
+        config = new JsonConfiguration();
+        config.options().pathIndex(true);
+        config.loadFromString(JSON);
+    }
+
+    @Test
+    public void testLookups() {
+        assertEquals("test", config.getString("name"));
+        assertEquals(64, config.getInt("players.bob.home.y"));
+        assertEquals(1.5D, config.getDouble("players.bob.balance"), 0D);
+        assertSame(config.getConfigurationSection("players").getConfigurationSection("bob"),
+                config.getConfigurationSection("players.bob"));
+        assertEquals(Arrays.asList(1, 2), config.getList("list"));
+        assertEquals("nested", config.getString("a.b"));
+        assertNull(config.get("players.carol"));
+        assertEquals("def", config.getString("players.carol.name", "def"));
+        assertSame(config, config.get(""));
+    }
+
+    @Test
+    public void testSetIsIndexed() {
+        config.set("players.carol.balance", 3);
+        assertEquals(3, config.getInt("players.carol.balance"));
+        config.getConfigurationSection("players.bob").set("balance", 7);
+        assertEquals(7, config.getInt("players.bob.balance"));
+        config.createSection("players.bob.home");
+        assertFalse(config.contains("players.bob.home.y"));
+        config.getConfigurationSection("players.bob.home").set("z", 5);
+        assertEquals(5, config.getInt("players.bob.home.z"));
+    }
+
+    @Test
+    public void testRemovingASectionRemovesItsPaths() {
+        config.set("players", null);
+        assertFalse(config.contains("players.bob.home.y"));
+        assertFalse(config.contains("players.alice"));
+        config.set("players", 1);
+        assertNull(config.get("players.bob"));
+    }
+
+    @Test
+    public void testDetachedSectionChangesAreNotIndexed() {
+        ConfigurationSection bob = config.getConfigurationSection("players.bob");
+        config.set("players.bob", null);
+        bob.set("balance", 9);
+        assertNull(config.get("players.bob.balance"));
+    }
+
+    @Test
+    public void testLazyLoading() throws Exception {
+        JsonConfiguration lazy = new JsonConfiguration();
+        lazy.options().lazyLoading(true).pathIndex(true);
+        lazy.loadFromString(JSON);
+        assertEquals(64, lazy.getInt("players.bob.home.y"));
+        assertEquals(2, lazy.getInt("players.alice.balance"));
+        assertEquals(config.getKeys(true), lazy.getKeys(true));
+    }
+
+    @Test
+    public void testSeparatorChange() {
+        config.options().pathSeparator('/');
+        assertEquals(64, config.getInt("players/bob/home/y"));
+        assertEquals("nested", config.getString("a/b"));
+        config.set("x.y", 1);
+        assertEquals(1, config.getInt("x.y"));
+        config.options().pathSeparator('.');
+        assertNull(config.get("x.y"));
+        assertEquals(64, config.getInt("players.bob.home.y"));
+    }
+
+    @Test
+    public void testEnabledAfterLoading() throws Exception {
+        JsonConfiguration later = new JsonConfiguration();
+        later.loadFromString(JSON);
+        later.set("players.bob.balance", 4);
+        later.options().pathIndex(true);
+        assertEquals(4, later.getInt("players.bob.balance"));
+        later.options().pathIndex(false);
+        later.set("players.bob.balance", 5);
+        later.options().pathIndex(true);
+        assertEquals(5, later.getInt("players.bob.balance"));
+    }
+}
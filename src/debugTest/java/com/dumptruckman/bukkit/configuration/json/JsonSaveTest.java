@@ -0,0 +1,58 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import net.minidev.json.JSONValue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JsonSaveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JsonConfiguration jc;
+
+    @Before
+    public void setUp() throws Exception {
+        jc = new JsonConfiguration();
+        jc.set("name", "Steve \"the\" builder/miner\n\t\u0001\u2028 \u00e9");
+        jc.set("numbers.int", 3);
+        jc.set("numbers.long", 1500000000000L);
+        jc.set("numbers.double", 67.0D);
+        jc.set("flags.enabled", true);
+        jc.set("list", Arrays.asList("a", 1, Arrays.asList(2.5D, null), Collections.singletonMap("k", "v")));
+        jc.set("array", new Object[] {"x", "y"});
+        jc.set("set", new HashSet<Object>(Arrays.asList(1, 2, 3)));
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("inner", Collections.singletonMap("deep", 1));
+        jc.set("map", map);
+        jc.createSection("empty");
+    }
+
+    @Test
+    public void testSameOutputAsSerializedTree() throws Exception {
+        assertEquals(JSONValue.toJSONString(SerializationHelper.serialize(jc.getValues(false))), jc.saveToString());
+    }
+
+    @Test
+    public void testRoundTripThroughFile() throws Exception {
+        File file = new File(folder.getRoot(), "nested/config.json");
+        jc.save(file);
+        JsonConfiguration loaded = JsonConfiguration.loadConfiguration(file);
+        assertEquals(jc.saveToString(), loaded.saveToString());
+        assertEquals(jc.getString("name"), loaded.getString("name"));
+        assertEquals(1500000000000L, loaded.get("numbers.long"));
+        assertTrue(loaded.get("set") instanceof java.util.Set);
+    }
+}
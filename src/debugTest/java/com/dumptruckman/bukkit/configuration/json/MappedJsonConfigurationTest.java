@@ -0,0 +1,118 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.MemorySection;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MappedJsonConfigurationTest {
+
+    private static final String JSON = "{\"name\":\"t\\u00e9st\",\"players\":{\"bob\":{\"balance\":1.5,\"home\":{\"x\":1,"
+            + "\"y\":64}},\"alice\":{\"balance\":2,\"kits\":[\"a\",{\"b\":\"c\\/d}\"}]}},\"set\":{\"==\":\"set\","
+            + "\"contents\":[1,2]},\"empty\":{},\"list\":[1,[2,3]],\"we\\\"ird\":true}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JsonConfiguration eager;
+    private MappedJsonConfiguration mapped;
+
+    @Before
+    public void setUp() throws Exception {
+        eager = new JsonConfiguration();
+        eager.loadFromString(JSON);
+        mapped = MappedJsonConfiguration.open(write(" \n" + JSON + "\n"));
+    }
+
+    @Test
+    public void testOnlyTopLevelIsIndexed() throws Exception {
+        assertEquals(eager.getKeys(false), mapped.getKeys(false));
+        Map<String, Object> raw = rawValues(mapped);
+        assertTrue(raw.get("name") instanceof LazyValue);
+        assertTrue(raw.get("players") instanceof LazyValue);
+    }
+
+    @Test
+    public void testGetDecodesOnlyWhatIsRead() throws Exception {
+        assertEquals(1.5D, mapped.getDouble("players.bob.balance"), 0D);
+        ConfigurationSection players = mapped.getConfigurationSection("players");
+        assertTrue(rawValues(players).get("alice") instanceof LazyValue);
+        assertEquals(64, mapped.getInt("players.bob.home.y"));
+        assertTrue(rawValues(mapped).get("list") instanceof LazyValue);
+    }
+
+    @Test
+    public void testReadingIsNotAModification() throws Exception {
+        long modifications = mapped.modifications();
+        mapped.getDouble("players.bob.balance");
+        mapped.getKeys(true);
+        assertEquals(modifications, mapped.modifications());
+    }
+
+    @Test
+    public void testSameValuesAsEager() throws Exception {
+        assertEquals(eager.getKeys(true), mapped.getKeys(true));
+        assertEquals(eager.saveToString(), mapped.saveToString());
+        assertEquals(eager.get("set"), mapped.get("set"));
+        assertEquals(Arrays.asList(1, Arrays.asList(2, 3)), mapped.getList("list"));
+        assertTrue(mapped.getBoolean("we\"ird"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSetIsRejected() {
+        mapped.set("name", "other");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testNestedSetIsRejected() {
+        mapped.getConfigurationSection("players").set("carol", 1);
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void testTopLevelMustBeAnObject() throws Exception {
+        MappedJsonConfiguration.open(write("[1,2]"));
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void testUnbalancedFileFailsOnOpen() throws Exception {
+        MappedJsonConfiguration.open(write("{\"a\":{\"b\":[1,2}"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInvalidValueFailsOnAccess() throws Exception {
+        MappedJsonConfiguration config = MappedJsonConfiguration.open(write("{\"a\":[1,,2],\"b\":1}"));
+        assertEquals(1, config.getInt("b"));
+        config.getList("a");
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        assertTrue(MappedJsonConfiguration.open(write("")).getKeys(true).isEmpty());
+    }
+
+    private File write(String contents) throws Exception {
+        File file = folder.newFile();
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static Map<String, Object> rawValues(ConfigurationSection section) throws Exception {
+        Field field = MemorySection.class.getDeclaredField("map");
+        field.setAccessible(true);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> map = (Map<String, Object>) field.get(section);
+        return map;
+    }
+}
@@ -0,0 +1,221 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SectionBinderTest {
+
+    private static final String JSON = "{\"settings\":{\"enabled\":true,\"name\":\"My Plugin\",\"port\":3306,"
+            + "\"ratio\":0.75,\"unit\":\"SECONDS\",\"max-players\":20,\"worlds\":[\"world\",\"nether\"],"
+            + "\"database\":{\"host\":\"localhost\",\"port\":5432},\"extra\":{\"a\":1}}}";
+
+    public interface Database {
+        String host();
+
+        int getPort();
+    }
+
+    public interface Settings {
+        boolean isEnabled();
+
+        String name();
+
+        int port();
+
+        double ratio();
+
+        TimeUnit unit();
+
+        @ConfigurationKey("max-players")
+        long maxPlayers();
+
+        List<String> worlds();
+
+        Database database();
+
+        Map<String, Object> extra();
+
+        Integer missing();
+    }
+
+    public static final class SettingsSnapshot {
+        private final boolean enabled;
+        private String name;
+        private short port;
+        private float ratio;
+        @ConfigurationKey("max-players")
+        private Integer maxPlayers;
+        private DatabaseSnapshot database;
+        private transient Object ignored = "kept";
+
+        private SettingsSnapshot() {
+            enabled = false;
+        }
+    }
+
+    public static final class DatabaseSnapshot {
+        String host;
+        int port;
+    }
+
+    public interface Wrong {
+        int name();
+    }
+
+    public interface Required {
+        int missing();
+    }
+
+    private JsonConfiguration config;
+
+    @Before
+    public void setUp() throws Exception {
+        config = new JsonConfiguration();
+        config.loadFromString(JSON);
+    }
+
+    @Test
+    public void testInterface() {
+        Settings settings = config.bind("settings", Settings.class);
+        assertTrue(settings.isEnabled());
+        assertEquals("My Plugin", settings.name());
+        assertEquals(3306, settings.port());
+        assertEquals(0.75D, settings.ratio(), 0D);
+        assertEquals(TimeUnit.SECONDS, settings.unit());
+        assertEquals(20L, settings.maxPlayers());
+        assertEquals(Arrays.asList("world", "nether"), settings.worlds());
+        assertEquals("localhost", settings.database().host());
+        assertEquals(5432, settings.database().getPort());
+        assertEquals(1, settings.extra().get("a"));
+        assertNull(settings.missing());
+        assertTrue(settings.toString().startsWith("Settings{"));
+        assertEquals(settings, settings);
+    }
+
+    @Test
+    public void testInterfaceIsLive() {
+        Settings settings = config.bind("settings", Settings.class);
+        assertEquals(3306, settings.port());
+        config.set("settings.port", 25565);
+        assertEquals(25565, settings.port());
+        config.set("settings.database.host", "example.com");
+        assertEquals("example.com", settings.database().host());
+    }
+
+    @Test
+    public void testInterfaceFailsOnceValueNoLongerFits() {
+        Settings settings = config.bind("settings", Settings.class);
+        config.set("settings.port", "not a number");
+        try {
+            settings.port();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("settings.port"));
+        }
+    }
+
+    @Test
+    public void testClass() {
+        SettingsSnapshot settings = config.bind("settings", SettingsSnapshot.class);
+        assertTrue(settings.enabled);
+        assertEquals("My Plugin", settings.name);
+        assertEquals(3306, settings.port);
+        assertEquals(0.75F, settings.ratio, 0F);
+        assertEquals(Integer.valueOf(20), settings.maxPlayers);
+        assertEquals("localhost", settings.database.host);
+        assertEquals(5432, settings.database.port);
+        assertEquals("kept", settings.ignored);
+
+        config.set("settings.port", 1);
+        assertEquals(3306, settings.port);
+    }
+
+    @Test
+    public void testRoot() {
+        ConfigurationSection settings = config.bind("", Root.class).settings();
+        assertEquals("My Plugin", settings.getString("name"));
+    }
+
+    public interface Root {
+        ConfigurationSection settings();
+    }
+
+    @Test
+    public void testWrongTypeFailsBind() {
+        try {
+            config.bind("settings", Wrong.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Cannot bind settings.name to int, found String", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testValueOutOfRangeFailsBind() {
+        config.set("settings.port", 100000);
+        try {
+            config.bind("settings", SettingsSnapshot.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("settings.port"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingPrimitiveFailsBind() {
+        config.bind("settings", Required.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingSectionFailsBind() {
+        config.bind("nowhere", Settings.class);
+    }
+
+    @Test
+    public void testConcurrentConfiguration() throws Exception {
+        ConcurrentJsonConfiguration concurrent = new ConcurrentJsonConfiguration();
+        concurrent.loadFromString(JSON);
+        Settings settings = concurrent.bind("settings", Settings.class);
+        assertEquals(3306, settings.port());
+        concurrent.set("settings.port", 1);
+        assertEquals(1, settings.port());
+    }
+
+    @Test
+    public void testConcurrentReadsDuringChanges() throws Exception {
+        final ConcurrentJsonConfiguration concurrent = new ConcurrentJsonConfiguration();
+        concurrent.loadFromString(JSON);
+        final Settings settings = concurrent.bind("settings", Settings.class);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                try {
+                    for (int read = 0; read < 20000; read++) {
+                        assertTrue(settings.port() >= 0);
+                        assertTrue(settings.isEnabled());
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            readers[i].start();
+        }
+        for (int port = 0; port < 2000; port++) {
+            concurrent.set("settings.port", port);
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,67 @@
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StringPoolTest {
+
+    private static final String ITEM = "{\"kind\":\"org.bukkit.inventory.ItemStack\",\"type\":\"DIAMOND_PICKAXE\","
+            + "\"amount\":1,\"meta\":{\"meta-type\":\"UNSPECIFIC\",\"display-name\":\"Pick \\\"of\\\" doom\"}}";
+
+    @Test
+    public void testRepeatedStringsAreShared() throws Exception {
+        StringPool pool = new StringPool(1024, 32);
+        JsonConfiguration first = load(pool, "{\"a\":{\"type\":\"DIAMOND_PICKAXE\"},\"b\":{\"type\":\"DIAMOND_PICKAXE\"}}");
+        JsonConfiguration second = load(pool, "{\"c\":{\"type\":\"DIAMOND_PICKAXE\"}}");
+
+        assertSame(first.getString("a.type"), first.getString("b.type"));
+        assertSame(first.getString("a.type"), second.getString("c.type"));
+        assertTrue(pool.getHits() >= 4);
+        assertTrue(pool.getBytesSaved() > 0);
+    }
+
+    @Test
+    public void testEscapedAndLongStrings() throws Exception {
+        StringPool pool = new StringPool(64, 8);
+        JsonConfiguration config = load(pool, "{\"k\":[\"a\\/b\",\"a\\/b\",\"longer than eight\",\"longer than eight\"]}");
+        assertEquals("a/b", config.getList("k").get(0));
+        assertSame(config.getList("k").get(0), config.getList("k").get(1));
+        assertEquals(config.getList("k").get(2), config.getList("k").get(3));
+        assertNotSame(config.getList("k").get(2), config.getList("k").get(3));
+    }
+
+    @Test
+    public void testCollisionsEvictAndStayCorrect() throws Exception {
+        StringPool pool = new StringPool(1, 32);
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < 100; i++) {
+            json.append(i == 0 ? "" : ",").append("\"key").append(i % 7).append(i).append("\":\"v").append(i % 3)
+                    .append('"');
+        }
+        JsonConfiguration config = load(pool, json.append('}').toString());
+        JsonConfiguration plain = new JsonConfiguration();
+        plain.loadFromString(json.toString());
+        assertEquals(plain.getValues(true), config.getValues(true));
+        assertEquals(plain.saveToString(), config.saveToString());
+    }
+
+    @Test
+    public void testSavingsAreReported() throws Exception {
+        StringPool pool = new StringPool(1024, 32);
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < 1000; i++) {
+            json.append(i == 0 ? "" : ",").append("\"item").append(i).append("\":").append(ITEM);
+        }
+        load(pool, json.append('}').toString());
+        assertTrue(pool.getHits() > 5000);
+        assertTrue(pool.getBytesSaved() > pool.getHits() * 40);
+    }
+
+    private static JsonConfiguration load(StringPool pool, String json) throws Exception {
+        JsonConfiguration config = new JsonConfiguration();
+        config.options().stringPool(pool);
+        config.loadFromString(json);
+        return config;
+    }
+}
@@ -0,0 +1,96 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.configuration.serialization.SerializableAs;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SerializationCacheTest {
+
+    @SerializableAs("cache-test")
+    public static class ViaMethod implements ConfigurationSerializable {
+        final Object value;
+
+        ViaMethod(Object value) {
+            this.value = value;
+        }
+
+        public static ViaMethod deserialize(Map<String, Object> args) {
+            return new ViaMethod(args.get("value"));
+        }
+
+        @Override
+        public Map<String, Object> serialize() {
+            return Collections.singletonMap("value", value);
+        }
+    }
+
+    public static class ViaConstructor implements ConfigurationSerializable {
+        final Object value;
+
+        public ViaConstructor(Map<String, Object> args) {
+            this.value = args.get("value");
+        }
+
+        @Override
+        public Map<String, Object> serialize() {
+            return Collections.singletonMap("value", value);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        SerializationCache.invalidate();
+        ConfigurationSerialization.registerClass(ViaMethod.class);
+    }
+
+    @Test
+    public void testAlias() throws Exception {
+        assertEquals("cache-test", SerializationCache.getAlias(ViaMethod.class));
+        long hits = SerializationCache.getAliasHits();
+        assertEquals("cache-test", SerializationCache.getAlias(ViaMethod.class));
+        assertEquals(hits + 1, SerializationCache.getAliasHits());
+    }
+
+    @Test
+    public void testDeserializeHitsAfterFirstMiss() throws Exception {
+        Map<String, Object> args = new HashMap<String, Object>();
+        args.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, "cache-test");
+        args.put("value", 5);
+
+        long misses = SerializationCache.getFactoryMisses();
+        long hits = SerializationCache.getFactoryHits();
+        assertEquals(5, ((ViaMethod) SerializationCache.deserializeObject(args)).value);
+        assertEquals(5, ((ViaMethod) SerializationCache.deserializeObject(args)).value);
+        assertEquals(misses + 1, SerializationCache.getFactoryMisses());
+        assertEquals(hits + 1, SerializationCache.getFactoryHits());
+    }
+
+    @Test
+    public void testReregisteredAliasIsPickedUp() throws Exception {
+        Map<String, Object> args = new HashMap<String, Object>();
+        args.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, "cache-test");
+        args.put("value", "x");
+        assertTrue(SerializationCache.deserializeObject(args) instanceof ViaMethod);
+
+        ConfigurationSerialization.registerClass(ViaConstructor.class, "cache-test");
+        try {
+            assertTrue(SerializationCache.deserializeObject(args) instanceof ViaConstructor);
+        } finally {
+            ConfigurationSerialization.registerClass(ViaMethod.class);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAlias() throws Exception {
+        SerializationCache.deserializeObject(Collections.singletonMap(ConfigurationSerialization.SERIALIZED_TYPE_KEY,
+                "no-such-alias"));
+    }
+}
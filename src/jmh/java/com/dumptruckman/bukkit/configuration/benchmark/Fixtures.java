@@ -0,0 +1,117 @@
+package com.dumptruckman.bukkit.configuration.benchmark;
+
+import com.dumptruckman.bukkit.configuration.json.JsonConfiguration;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+
+/**
+ * Realistic json documents shared by the benchmarks.
+ *
+ * Inventories hold {@link Item}s rather than ItemStacks, since serializing an ItemStack needs a running server.
+ */
+public final class Fixtures {
+
+    public static final String SMALL = "small";
+    public static final String DEEP = "deep";
+    public static final String INVENTORY = "inventory";
+    public static final String LARGE_SET = "large-set";
+
+    private static final String[] MATERIALS = {"DIAMOND_PICKAXE", "IRON_BOOTS", "SKULL_ITEM", "COBBLESTONE", "BREAD",
+            "TORCH", "DIAMOND_SWORD", "ENDER_PEARL"};
+
+    private Fixtures() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Registers everything the fixtures deserialize.
+     */
+    public static void register() {
+        new JsonConfiguration();
+        ConfigurationSerialization.registerClass(Item.class);
+    }
+
+    public static String json(String fixture) {
+        switch (fixture) {
+            case SMALL:
+                return small();
+            case DEEP:
+                return deep(64);
+            case INVENTORY:
+                return inventory();
+            case LARGE_SET:
+                return largeSet(100000);
+            default:
+                throw new IllegalArgumentException("Unknown fixture " + fixture);
+        }
+    }
+
+    private static String small() {
+        return "{\"enabled\":true,\"name\":\"My Plugin\",\"version\":3,\"ratio\":0.75,\"motd\":\"Welcome\\/back\","
+                + "\"database\":{\"host\":\"localhost\",\"port\":3306,\"user\":\"minecraft\"},"
+                + "\"worlds\":[\"world\",\"world_nether\",\"world_the_end\"]}";
+    }
+
+    private static String deep(int depth) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            builder.append("{\"value").append(i).append("\":").append(i).append(",\"name\":\"level").append(i)
+                    .append("\",\"child\":");
+        }
+        builder.append("{}");
+        for (int i = 0; i < depth; i++) {
+            builder.append('}');
+        }
+        return builder.toString();
+    }
+
+    private static String inventory() {
+        StringBuilder builder = new StringBuilder("{");
+        String[] gameModes = {"SURVIVAL", "CREATIVE", "ADVENTURE"};
+        for (int mode = 0; mode < gameModes.length; mode++) {
+            if (mode > 0) {
+                builder.append(',');
+            }
+            builder.append('"').append(gameModes[mode]).append("\":{\"potions\":\"[]\",\"health\":20.0,")
+                    .append("\"bedSpawnLocation\":{\"wo\":\"world\",\"x\":-7357.0,\"ya\":0.0,\"y\":67.0,\"pi\":0.0,")
+                    .append("\"z\":-27793.0},");
+            items(builder, "armorContents", 4, mode);
+            builder.append(',');
+            items(builder, "inventoryContents", 36, mode);
+            builder.append(',');
+            items(builder, "enderChestContents", 27, mode);
+            builder.append('}');
+        }
+        return builder.append('}').toString();
+    }
+
+    private static void items(StringBuilder builder, String name, int slots, int seed) {
+        builder.append('"').append(name).append("\":{");
+        for (int slot = 0; slot < slots; slot++) {
+            if (slot > 0) {
+                builder.append(',');
+            }
+            builder.append('"').append(slot).append("\":{\"==\":\"Item\",\"type\":\"")
+                    .append(MATERIALS[(slot + seed) % MATERIALS.length]).append("\",\"damage\":")
+                    .append(slot % 5).append(",\"amount\":").append(slot % 64 + 1).append('}');
+        }
+        builder.append('}');
+    }
+
+    private static String largeSet(int size) {
+        StringBuilder builder = new StringBuilder("{\"blocks\":{\"==\":\"set\",\"contents\":[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(i * 7);
+        }
+        builder.append("]},\"visitors\":[");
+        for (int i = 0; i < size / 10; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("\"Player").append(i).append('"');
+        }
+        return builder.append("]}").toString();
+    }
+}
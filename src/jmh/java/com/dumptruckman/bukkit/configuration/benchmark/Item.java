@@ -0,0 +1,39 @@
+package com.dumptruckman.bukkit.configuration.benchmark;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.SerializableAs;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stands in for an ItemStack, which cannot be serialized without a running server, with the same fields an ItemStack
+ * without meta serializes.
+ */
+@SerializableAs("Item")
+public final class Item implements ConfigurationSerializable {
+
+    private final String type;
+    private final short damage;
+    private final int amount;
+
+    public Item(String type, short damage, int amount) {
+        this.type = type;
+        this.damage = damage;
+        this.amount = amount;
+    }
+
+    public static Item deserialize(Map<String, Object> values) {
+        return new Item((String) values.get("type"), ((Number) values.get("damage")).shortValue(),
+                ((Number) values.get("amount")).intValue());
+    }
+
+    @Override
+    public Map<String, Object> serialize() {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        values.put("type", type);
+        values.put("damage", damage);
+        values.put("amount", amount);
+        return values;
+    }
+}
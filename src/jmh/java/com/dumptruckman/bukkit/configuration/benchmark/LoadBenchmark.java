@@ -0,0 +1,63 @@
+package com.dumptruckman.bukkit.configuration.benchmark;
+
+import com.dumptruckman.bukkit.configuration.json.JsonBackend;
+import com.dumptruckman.bukkit.configuration.json.JsonConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({Fixtures.SMALL, Fixtures.DEEP, Fixtures.INVENTORY, Fixtures.LARGE_SET})
+    public String fixture;
+
+    private String json;
+
+    @Setup
+    public void setUp() {
+        Fixtures.register();
+        json = Fixtures.json(fixture);
+    }
+
+    @Benchmark
+    public JsonConfiguration loadFromString() throws Exception {
+        JsonConfiguration config = new JsonConfiguration();
+        config.loadFromString(json);
+        return config;
+    }
+
+    @Benchmark
+    public JsonConfiguration loadFromReader() throws Exception {
+        JsonConfiguration config = new JsonConfiguration();
+        config.load(new StringReader(json));
+        return config;
+    }
+
+    /**
+     * Loads through a parse tree, for comparing time and, under -prof gc, allocation against the streaming loader.
+     */
+    @Benchmark
+    public JsonConfiguration loadThroughParseTree() throws Exception {
+        JsonConfiguration config = new JsonConfiguration();
+        config.options().backend(JsonBackend.JSON_SMART);
+        config.loadFromString(json);
+        return config;
+    }
+}
@@ -0,0 +1,51 @@
+package com.dumptruckman.bukkit.configuration.benchmark;
+
+import com.dumptruckman.bukkit.configuration.json.JsonConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveBenchmark {
+
+    @Param({Fixtures.SMALL, Fixtures.DEEP, Fixtures.INVENTORY, Fixtures.LARGE_SET})
+    public String fixture;
+
+    private String json;
+    private JsonConfiguration config;
+
+    @Setup
+    public void setUp() throws Exception {
+        Fixtures.register();
+        json = Fixtures.json(fixture);
+        config = new JsonConfiguration();
+        config.loadFromString(json);
+    }
+
+    @Benchmark
+    public String saveToString() {
+        return config.saveToString();
+    }
+
+    @Benchmark
+    public String roundTrip() throws Exception {
+        JsonConfiguration loaded = new JsonConfiguration();
+        loaded.loadFromString(json);
+        return loaded.saveToString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.dumptruckman.bukkit.configuration.benchmark;
+
+import com.dumptruckman.bukkit.configuration.SerializableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializableSetBenchmark {
+
+    @Param({"100", "100000"})
+    public int size;
+
+    @Param({"integer", "string"})
+    public String type;
+
+    private Set<Object> contents;
+    private Map<String, Object> serialized;
+
+    @Setup
+    public void setUp() {
+        contents = new HashSet<Object>(size * 2);
+        for (int i = 0; i < size; i++) {
+            contents.add("integer".equals(type) ? (Object) (i * 7) : new UUID(i, i * 31L).toString());
+        }
+        serialized = new SerializableSet(contents).serialize();
+    }
+
+    @Benchmark
+    public Map<String, Object> serialize() {
+        return new SerializableSet(contents).serialize();
+    }
+
+    @Benchmark
+    public SerializableSet deserialize() {
+        return new SerializableSet(serialized);
+    }
+
+    @Benchmark
+    public SerializableSet roundTrip() {
+        return new SerializableSet(new SerializableSet(contents).serialize());
+    }
+}
@@ -0,0 +1,52 @@
+package com.dumptruckman.bukkit.configuration.benchmark;
+
+import com.dumptruckman.bukkit.configuration.json.JsonConfiguration;
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationHelperBenchmark {
+
+    @Param({Fixtures.SMALL, Fixtures.DEEP, Fixtures.INVENTORY, Fixtures.LARGE_SET})
+    public String fixture;
+
+    private Map<String, Object> values;
+    private Map<?, ?> serialized;
+
+    @Setup
+    public void setUp() throws Exception {
+        Fixtures.register();
+        JsonConfiguration config = new JsonConfiguration();
+        config.loadFromString(Fixtures.json(fixture));
+        values = config.getValues(false);
+        serialized = (Map<?, ?>) SerializationHelper.serialize(values);
+    }
+
+    @Benchmark
+    public Object serialize() {
+        return SerializationHelper.serialize(values);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return SerializationHelper.deserialize(serialized);
+    }
+}
@@ -0,0 +1,99 @@
+package com.dumptruckman.bukkit.configuration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * A set that only holds elements of a single type, stored without the per element entry objects of a
+ * {@link HashSet}.
+ *
+ * The implementations are open addressing hash sets with linear probing and backward shift deletion.  Iterators
+ * support removal; the first removal makes the iterator continue over a copy of the table, so the shifting done by
+ * removals can neither skip nor repeat elements.
+ */
+abstract class CompactSet extends AbstractSet<Object> {
+
+    private static final float LOAD_FACTOR = 0.75F;
+
+    /**
+     * Copies the elements into a compact set if they are all Integers, all Longs or all Strings, or into a
+     * {@link HashSet} otherwise.
+     */
+    @NotNull
+    static Set<Object> copyOf(@NotNull final Collection<?> elements) {
+        Class<?> type = null;
+        for (final Object element : elements) {
+            final Class<?> elementType = element == null ? null : element.getClass();
+            if (type == null) {
+                type = elementType;
+            }
+            if (elementType == null || elementType != type) {
+                type = null;
+                break;
+            }
+        }
+        final CompactSet result;
+        if (type == Integer.class) {
+            result = new IntOpenHashSet(elements.size());
+        } else if (type == Long.class) {
+            result = new LongOpenHashSet(elements.size());
+        } else if (type == String.class) {
+            result = new StringOpenHashSet(elements.size());
+        } else {
+            return new HashSet<Object>(elements);
+        }
+        for (final Object element : elements) {
+            result.add(element);
+        }
+        return result;
+    }
+
+    /**
+     * @return whether the element can be added to this set.
+     */
+    abstract boolean accepts(Object element);
+
+    /**
+     * Iterates over a sorted copy of the elements, so that equal sets are always written in the same order no matter
+     * how their tables were filled.  Only the unboxed elements are copied.
+     */
+    @NotNull
+    abstract Iterator<Object> sortedIterator();
+
+    /**
+     * @return the power of two table length that holds the given number of elements below the load factor.
+     */
+    static int tableLength(final int expected) {
+        final long needed = Math.max(4, (long) Math.ceil(expected / LOAD_FACTOR) + 1);
+        return (int) Math.min(1 << 30, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    /**
+     * @return the number of elements a table of the given length holds before it has to grow.
+     */
+    static int threshold(final int length) {
+        return Math.min(length - 1, (int) (length * LOAD_FACTOR));
+    }
+
+    static int mix(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Decides whether the element at {@code from}, whose home slot is {@code home}, may be moved back into the free
+     * slot {@code free} of a backward shift, which is the case unless its home lies cyclically between the two.
+     */
+    static boolean canMoveBack(final int free, final int from, final int home) {
+        return free <= from ? free >= home || home > from : free >= home && home > from;
+    }
+
+    IllegalArgumentException unsupported(final Object element) {
+        return new IllegalArgumentException("Cannot add " + element + " to " + getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,235 @@
+package com.dumptruckman.bukkit.configuration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link CompactSet} of Integers, stored as a plain int table in which 0 marks a free slot.
+ */
+final class IntOpenHashSet extends CompactSet {
+
+    private int[] keys;
+    private int mask;
+    private int threshold;
+    private int size;
+    private boolean hasZero;
+
+    IntOpenHashSet(final int expected) {
+        allocate(tableLength(expected));
+    }
+
+    @Override
+    boolean accepts(final Object element) {
+        return element instanceof Integer;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof Integer && contains((int) (Integer) o);
+    }
+
+    boolean contains(final int key) {
+        if (key == 0) {
+            return hasZero;
+        }
+        for (int i = mix(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean add(final Object o) {
+        if (!(o instanceof Integer)) {
+            throw unsupported(o);
+        }
+        return add((int) (Integer) o);
+    }
+
+    boolean add(final int key) {
+        if (key == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int i = mix(key) & mask;
+        for (; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return false;
+            }
+        }
+        keys[i] = key;
+        if (++size - (hasZero ? 1 : 0) > threshold) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        return o instanceof Integer && remove((int) (Integer) o);
+    }
+
+    boolean remove(final int key) {
+        if (key == 0) {
+            if (!hasZero) {
+                return false;
+            }
+            hasZero = false;
+            size--;
+            return true;
+        }
+        for (int i = mix(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                shift(i);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Object> iterator() {
+        return new Iterator<Object>() {
+            private int[] table = keys;
+            private boolean zero = hasZero;
+            private int next;
+            private boolean copied;
+            private boolean canRemove;
+            private int last;
+
+            @Override
+            public boolean hasNext() {
+                if (zero) {
+                    return true;
+                }
+                while (next < table.length && table[next] == 0) {
+                    next++;
+                }
+                return next < table.length;
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (zero) {
+                    zero = false;
+                    last = 0;
+                } else {
+                    last = table[next++];
+                }
+                canRemove = true;
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                canRemove = false;
+                if (!copied) {
+                    table = table.clone();
+                    copied = true;
+                }
+                IntOpenHashSet.this.remove(last);
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    Iterator<Object> sortedIterator() {
+        final int[] sorted = new int[size];
+        int count = 0;
+        if (hasZero) {
+            count++;
+        }
+        for (final int key : keys) {
+            if (key != 0) {
+                sorted[count++] = key;
+            }
+        }
+        Arrays.sort(sorted);
+        return new Iterator<Object>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < sorted.length;
+            }
+
+            @Override
+            public Object next() {
+                if (next == sorted.length) {
+                    throw new NoSuchElementException();
+                }
+                return sorted[next++];
+            }
+        };
+    }
+
+    private void shift(int free) {
+        while (true) {
+            int from = (free + 1) & mask;
+            int key;
+            while (true) {
+                key = keys[from];
+                if (key == 0) {
+                    keys[free] = 0;
+                    return;
+                }
+                if (canMoveBack(free, from, mix(key) & mask)) {
+                    break;
+                }
+                from = (from + 1) & mask;
+            }
+            keys[free] = key;
+            free = from;
+        }
+    }
+
+    private void rehash(final int length) {
+        final int[] old = keys;
+        allocate(length);
+        for (final int key : old) {
+            if (key != 0) {
+                int i = mix(key) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+            }
+        }
+    }
+
+    private void allocate(final int length) {
+        keys = new int[length];
+        mask = length - 1;
+        threshold = threshold(length);
+    }
+}
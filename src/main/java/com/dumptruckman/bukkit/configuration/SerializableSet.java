@@ -4,7 +4,7 @@ import org.bukkit.configuration.serialization.ConfigurationSerializable;
 import org.bukkit.configuration.serialization.SerializableAs;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -18,35 +18,108 @@ import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
+/**
+ * A Set that can be stored in a configuration.
+ *
+ * Sets read from a configuration that contain only Integers, only Longs or only Strings are kept in compact open
+ * addressing tables instead of a {@link HashSet}, which takes a fraction of the memory for large sets.  Adding an
+ * element of any other type switches such a set over to a HashSet first.
+ */
 @SerializableAs("set")
 public class SerializableSet implements Set, ConfigurationSerializable {
 
+    /**
+     * The contents of a set as they are serialized: a read only view that iterates the set directly and only
+     * copies it into an array for positional access.  Compact sets are iterated in sorted order.
+     */
+    private static final class Contents extends AbstractList<Object> {
+
+        @NotNull
+        private final Set<?> set;
+        private Object[] array;
+
+        Contents(@NotNull final Set<?> set) {
+            this.set = set;
+        }
+
+        @Override
+        public Object get(final int index) {
+            if (array == null) {
+                array = new Object[set.size()];
+                int i = 0;
+                for (final Object element : this) {
+                    array[i++] = element;
+                }
+            }
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array != null ? array.length : set.size();
+        }
+
+        @NotNull
+        @Override
+        public Iterator<Object> iterator() {
+            if (set instanceof CompactSet) {
+                return ((CompactSet) set).sortedIterator();
+            }
+            return Collections.<Object>unmodifiableSet(set).iterator();
+        }
+    }
+
     @NotNull
-    private final Set backingSet;
+    private Set backingSet;
 
+    /**
+     * Wraps a set; changes to either are visible through both.
+     */
     public SerializableSet(@NotNull Set backingSet) {
         this.backingSet = backingSet;
     }
 
-    @SuppressWarnings("unchecked")
     public SerializableSet(@NotNull Map<String, Object> serializedForm) {
         Object o = serializedForm.get("contents");
         if (o instanceof List) {
-            backingSet = new HashSet((List) o);
+            backingSet = CompactSet.copyOf((List<?>) o);
         } else {
             backingSet = Collections.emptySet();
         }
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Creates a set holding a copy of the given elements, stored compactly if they are all Integers, all Longs or all
+     * Strings.
+     */
+    @NotNull
+    public static SerializableSet copyOf(@NotNull Collection<?> elements) {
+        return new SerializableSet(CompactSet.copyOf(elements));
+    }
+
     @Override
     public Map<String, Object> serialize() {
-        Map<String, Object> serializedForm = new HashMap<>(backingSet.size());
-        List<Object> contents = new ArrayList(backingSet);
-        serializedForm.put("contents", contents);
+        Map<String, Object> serializedForm = new HashMap<>(2);
+        serializedForm.put("contents", new Contents(backingSet));
         return serializedForm;
     }
 
+    /**
+     * Switches a compact backing set over to a HashSet if it cannot hold all of the given elements.
+     */
+    @SuppressWarnings("unchecked")
+    private void ensureAccepts(@NotNull Collection<?> elements) {
+        if (backingSet instanceof CompactSet) {
+            CompactSet compact = (CompactSet) backingSet;
+            for (Object element : elements) {
+                if (!compact.accepts(element)) {
+                    backingSet = new HashSet(backingSet);
+                    return;
+                }
+            }
+        }
+    }
+
     @Override
     public int size() {
         return backingSet.size();
@@ -83,6 +156,7 @@ public class SerializableSet implements Set, ConfigurationSerializable {
     @SuppressWarnings("unchecked")
     @Override
     public boolean add(Object o) {
+        ensureAccepts(Collections.singleton(o));
         return backingSet.add(o);
     }
 
@@ -100,6 +174,7 @@ public class SerializableSet implements Set, ConfigurationSerializable {
     @SuppressWarnings("unchecked")
     @Override
     public boolean addAll(@NotNull Collection c) {
+        ensureAccepts(c);
         return backingSet.addAll(c);
     }
 
@@ -0,0 +1,179 @@
+package com.dumptruckman.bukkit.configuration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link CompactSet} of Strings, stored as a plain String table in which null marks a free slot.
+ */
+final class StringOpenHashSet extends CompactSet {
+
+    private String[] keys;
+    private int mask;
+    private int threshold;
+    private int size;
+
+    StringOpenHashSet(final int expected) {
+        allocate(tableLength(expected));
+    }
+
+    @Override
+    boolean accepts(final Object element) {
+        return element instanceof String;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        for (int i = mix(o.hashCode()) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean add(final Object o) {
+        if (!(o instanceof String)) {
+            throw unsupported(o);
+        }
+        int i = mix(o.hashCode()) & mask;
+        for (; keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(o)) {
+                return false;
+            }
+        }
+        keys[i] = (String) o;
+        if (++size > threshold) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        for (int i = mix(o.hashCode()) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(o)) {
+                shift(i);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Object> iterator() {
+        return new Iterator<Object>() {
+            private String[] table = keys;
+            private int next;
+            private boolean copied;
+            private String last;
+
+            @Override
+            public boolean hasNext() {
+                while (next < table.length && table[next] == null) {
+                    next++;
+                }
+                return next < table.length;
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = table[next++];
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                if (!copied) {
+                    table = table.clone();
+                    copied = true;
+                }
+                StringOpenHashSet.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    Iterator<Object> sortedIterator() {
+        final String[] sorted = new String[size];
+        int count = 0;
+        for (final String key : keys) {
+            if (key != null) {
+                sorted[count++] = key;
+            }
+        }
+        Arrays.sort(sorted);
+        return Arrays.<Object>asList(sorted).iterator();
+    }
+
+    private void shift(int free) {
+        while (true) {
+            int from = (free + 1) & mask;
+            String key;
+            while (true) {
+                key = keys[from];
+                if (key == null) {
+                    keys[free] = null;
+                    return;
+                }
+                if (canMoveBack(free, from, mix(key.hashCode()) & mask)) {
+                    break;
+                }
+                from = (from + 1) & mask;
+            }
+            keys[free] = key;
+            free = from;
+        }
+    }
+
+    private void rehash(final int length) {
+        final String[] old = keys;
+        allocate(length);
+        for (final String key : old) {
+            if (key != null) {
+                int i = mix(key.hashCode()) & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+            }
+        }
+    }
+
+    private void allocate(final int length) {
+        keys = new String[length];
+        mask = length - 1;
+        threshold = threshold(length);
+    }
+}
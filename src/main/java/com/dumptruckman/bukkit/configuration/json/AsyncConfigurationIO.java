@@ -0,0 +1,359 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.util.ConfigurationMetrics;
+import com.google.common.base.Charsets;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Loads and saves {@link JsonConfiguration}s off the calling thread.
+ *
+ * Saving takes a snapshot of the configuration on the calling thread, so the caller is free to keep changing the
+ * configuration while the snapshot is written.  Repeated saves of the same file that are still waiting to be written
+ * are coalesced into a single write of the newest snapshot.  Files are written to a temporary file first and then
+ * moved over the target, so a crash mid-write never leaves a truncated configuration behind.
+ */
+public class AsyncConfigurationIO {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private static final class PendingSave {
+        Object snapshot;
+        boolean binary;
+        int compression;
+        JsonBackend backend;
+        ConfigurationMetrics metrics;
+        boolean started;
+        final CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+        PendingSave(@NotNull final Object snapshot, final boolean binary, final int compression,
+                    @NotNull final JsonBackend backend, final ConfigurationMetrics metrics) {
+            this.snapshot = snapshot;
+            this.binary = binary;
+            this.compression = compression;
+            this.backend = backend;
+            this.metrics = metrics;
+        }
+    }
+
+    @NotNull
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final ConcurrentMap<File, PendingSave> pending = new ConcurrentHashMap<File, PendingSave>();
+    private final Set<CompletableFuture<Void>> unfinished = ConcurrentHashMap.newKeySet();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private volatile boolean closed;
+
+    /**
+     * Creates an instance that runs all I/O on the given executor.
+     *
+     * @param executor The executor to run loads and saves on.
+     */
+    public AsyncConfigurationIO(@NotNull final Executor executor) {
+        this(executor, false);
+    }
+
+    /**
+     * Creates an instance backed by its own pool of daemon threads.
+     *
+     * @param threads The maximum number of files read or written at the same time.
+     */
+    public AsyncConfigurationIO(final int threads) {
+        this(newExecutor(threads), true);
+    }
+
+    private AsyncConfigurationIO(@NotNull final Executor executor, final boolean ownsExecutor) {
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    private static ExecutorService newExecutor(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadFactory factory = runnable -> {
+            final Thread thread = new Thread(runnable, "JsonConfiguration I/O #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), factory);
+    }
+
+    /**
+     * Loads a configuration from a json formatted file.
+     *
+     * Any save of the same file that has not been written yet is written first.
+     *
+     * @param file The file to load the configuration from.
+     * @return A future completed with the loaded configuration, or exceptionally if the file cannot be loaded.
+     */
+    @NotNull
+    public CompletableFuture<JsonConfiguration> load(@NotNull final File file) {
+        return load(file, JsonConfiguration::new);
+    }
+
+    /**
+     * Loads a json formatted file into a new configuration from the factory.
+     *
+     * Any save of the same file that has not been written yet is written first.
+     *
+     * @param file The file to load the configuration from.
+     * @param factory Creates the configuration to load the file into, which allows setting its options.  Called on
+     *                the I/O thread.
+     * @param <T> The type of configuration.
+     * @return A future completed with the loaded configuration, or exceptionally if the file cannot be loaded.
+     */
+    @NotNull
+    public <T extends JsonConfiguration> CompletableFuture<T> load(@NotNull final File file,
+                                                                   @NotNull final Supplier<? extends T> factory) {
+        if (closed) {
+            return rejected();
+        }
+        final File key = file.getAbsoluteFile();
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (lock(key)) {
+                final PendingSave save = pending.get(key);
+                if (save != null) {
+                    write(key, save);
+                }
+                final T config = factory.get();
+                try {
+                    config.load(key);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+                return config;
+            }
+        }, executor);
+    }
+
+    /**
+     * Saves a snapshot of the configuration to a json formatted file.
+     *
+     * If an earlier save of the same file is still waiting to be written, its snapshot is replaced by this one and
+     * its future is returned.
+     *
+     * @param config The configuration to save.
+     * @param file The file to save the configuration to.
+     * @return A future completed once the snapshot is on disk, or exceptionally if it could not be written.
+     */
+    @NotNull
+    public CompletableFuture<Void> save(@NotNull final JsonConfiguration config, @NotNull final File file) {
+        if (closed) {
+            return rejected();
+        }
+        final Object snapshot = config.serializeSnapshot();
+        final boolean binary = config.options().binary();
+        final int compression = JsonCompression.level(config.options(), file);
+        final JsonBackend backend = config.options().backend();
+        final ConfigurationMetrics metrics = config.options().metrics();
+        final File key = file.getAbsoluteFile();
+        while (true) {
+            final PendingSave existing = pending.get(key);
+            if (existing != null) {
+                synchronized (existing) {
+                    if (!existing.started) {
+                        existing.snapshot = snapshot;
+                        existing.binary = binary;
+                        existing.compression = compression;
+                        existing.backend = backend;
+                        existing.metrics = metrics;
+                        return existing.future;
+                    }
+                }
+                // Already being written; queue a new save once it is out of the map.
+                pending.remove(key, existing);
+            }
+            final PendingSave save = new PendingSave(snapshot, binary, compression, backend, metrics);
+            if (pending.putIfAbsent(key, save) == null) {
+                unfinished.add(save.future);
+                save.future.whenComplete((result, error) -> unfinished.remove(save.future));
+                try {
+                    executor.execute(() -> {
+                        synchronized (lock(key)) {
+                            write(key, save);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    pending.remove(key, save);
+                    save.future.completeExceptionally(e);
+                }
+                return save.future;
+            }
+        }
+    }
+
+    /**
+     * Saves a snapshot of each configuration to its file.
+     *
+     * @param configs The configurations to save by the file to save them to.
+     * @return A future completed once every snapshot is on disk, or exceptionally if any could not be written.
+     */
+    @NotNull
+    public CompletableFuture<Void> saveAll(@NotNull final Map<File, ? extends JsonConfiguration> configs) {
+        final List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>(configs.size());
+        for (final Map.Entry<File, ? extends JsonConfiguration> entry : configs.entrySet()) {
+            futures.add(save(entry.getValue(), entry.getKey()));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]));
+    }
+
+    /**
+     * Stops accepting work and blocks until everything already queued has been written.
+     *
+     * Loads and saves requested afterwards fail with a {@link RejectedExecutionException}.  Only an executor created
+     * by this instance is shut down; a supplied executor is left running but every save made through this instance
+     * is still waited for, so this does not return if that executor never runs them.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void shutdown() throws InterruptedException {
+        shutdown(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Same as {@link #shutdown()}, but gives up waiting after the timeout.
+     *
+     * @param timeout The longest time to wait.
+     * @param unit The unit of the timeout.
+     * @return True if everything queued was written, or false if the timeout passed first.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean shutdown(final long timeout, @NotNull final TimeUnit unit) throws InterruptedException {
+        closed = true;
+        if (ownsExecutor) {
+            final ExecutorService service = (ExecutorService) executor;
+            service.shutdown();
+            return service.awaitTermination(timeout, unit);
+        }
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (final CompletableFuture<Void> future : new ArrayList<CompletableFuture<Void>>(unfinished)) {
+            try {
+                future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException ignore) {
+                // Already reported through the future.
+            } catch (TimeoutException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @NotNull
+    private static <T> CompletableFuture<T> rejected() {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        future.completeExceptionally(new RejectedExecutionException("AsyncConfigurationIO has been shut down"));
+        return future;
+    }
+
+    @NotNull
+    private Object lock(@NotNull final File key) {
+        return locks[(key.hashCode() & Integer.MAX_VALUE) % locks.length];
+    }
+
+    /**
+     * Writes a pending save.  Callers hold the lock for the file, which keeps writes of one file in order.
+     */
+    private void write(@NotNull final File file, @NotNull final PendingSave save) {
+        final Object snapshot;
+        final boolean binary;
+        final int compression;
+        final JsonBackend backend;
+        final ConfigurationMetrics metrics;
+        synchronized (save) {
+            if (save.started) {
+                return;
+            }
+            save.started = true;
+            snapshot = save.snapshot;
+            binary = save.binary;
+            compression = save.compression;
+            backend = save.backend;
+            metrics = save.metrics;
+        }
+        pending.remove(file, save);
+        try {
+            final long start = System.nanoTime();
+            writeAtomically(file, snapshot, binary, compression, backend, metrics);
+            if (metrics != null) {
+                metrics.saved(file, file.length(), System.nanoTime() - start);
+            }
+            save.future.complete(null);
+        } catch (Throwable t) {
+            save.future.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * Writes a snapshot to a temporary file next to the given file and moves it over the file, atomically if the file
+     * system allows it.
+     *
+     * @param compression the level to compress the file with, or {@link JsonCompression#NONE}.
+     */
+    static void writeAtomically(@NotNull final File file, @NotNull final Object snapshot, final boolean binary,
+                                final int compression, @NotNull final JsonBackend backend,
+                                final ConfigurationMetrics metrics)
+            throws IOException {
+        final File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Unable to create parent directories of " + file);
+        }
+        final File temp = File.createTempFile("." + file.getName() + ".", ".tmp", parent);
+        try {
+            if (binary) {
+                try (OutputStream output = JsonCompression.compress(new FileOutputStream(temp), compression)) {
+                    new JsonBinaryWriter(output).write((Map<?, ?>) snapshot);
+                }
+            } else {
+                try (Writer writer = new OutputStreamWriter(
+                        JsonCompression.compress(new FileOutputStream(temp), compression), Charsets.UTF_8)) {
+                    backend.save(snapshot, writer, metrics);
+                }
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+}
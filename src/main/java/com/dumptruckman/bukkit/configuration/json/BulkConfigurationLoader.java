@@ -0,0 +1,250 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Loads many json configuration files in parallel.
+ *
+ * The files are split across a {@link ForkJoinPool}, each file being loaded independently.  Files that cannot be
+ * loaded are reported in the {@link Result} along with the reason instead of being logged and skipped.
+ */
+public class BulkConfigurationLoader {
+
+    private static final int FILES_PER_TASK = 4;
+
+    private static final FileFilter JSON_FILES =
+            file -> file.isFile() && file.getName().toLowerCase(Locale.ROOT).endsWith(".json");
+
+    /**
+     * The outcome of a bulk load.
+     */
+    public static final class Result {
+
+        @NotNull
+        private final Map<File, JsonConfiguration> configurations;
+        @NotNull
+        private final Map<File, Exception> failures;
+        private final long bytesRead;
+        private final long elapsedNanos;
+
+        private Result(@NotNull final Map<File, JsonConfiguration> configurations,
+                       @NotNull final Map<File, Exception> failures, final long bytesRead, final long elapsedNanos) {
+            this.configurations = Collections.unmodifiableMap(configurations);
+            this.failures = Collections.unmodifiableMap(failures);
+            this.bytesRead = bytesRead;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return The successfully loaded configurations by their file, in the order the files were given.
+         */
+        @NotNull
+        public Map<File, JsonConfiguration> getConfigurations() {
+            return configurations;
+        }
+
+        /**
+         * @return The reason each file that could not be loaded failed, by file.
+         */
+        @NotNull
+        public Map<File, Exception> getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return The combined size of the successfully loaded files.
+         */
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        /**
+         * @param unit The unit to return the time in.
+         * @return The wall clock time the whole load took.
+         */
+        public long getElapsed(@NotNull final TimeUnit unit) {
+            return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * @return The number of files, loaded or failed, processed per second.
+         */
+        public double getFilesPerSecond() {
+            return perSecond(configurations.size() + failures.size());
+        }
+
+        /**
+         * @return The number of bytes loaded per second.
+         */
+        public double getBytesPerSecond() {
+            return perSecond(bytesRead);
+        }
+
+        private double perSecond(final long amount) {
+            return elapsedNanos == 0 ? 0 : amount * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Loaded %d files (%d failed, %d bytes) in %d ms: %.1f files/s, %.1f KiB/s",
+                    configurations.size(), failures.size(), bytesRead, getElapsed(TimeUnit.MILLISECONDS),
+                    getFilesPerSecond(), getBytesPerSecond() / 1024);
+        }
+    }
+
+    private static final class LoadTask extends RecursiveTask<Long> {
+
+        private final Supplier<? extends JsonConfiguration> factory;
+        private final File[] files;
+        private final JsonConfiguration[] configurations;
+        private final Exception[] failures;
+        private final int from;
+        private final int to;
+
+        LoadTask(final Supplier<? extends JsonConfiguration> factory, final File[] files,
+                 final JsonConfiguration[] configurations, final Exception[] failures, final int from, final int to) {
+            this.factory = factory;
+            this.files = files;
+            this.configurations = configurations;
+            this.failures = failures;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > FILES_PER_TASK) {
+                final int middle = (from + to) >>> 1;
+                final LoadTask left = new LoadTask(factory, files, configurations, failures, from, middle);
+                left.fork();
+                final long right = new LoadTask(factory, files, configurations, failures, middle, to).compute();
+                return left.join() + right;
+            }
+            long bytes = 0;
+            for (int i = from; i < to; i++) {
+                try {
+                    final JsonConfiguration config = factory.get();
+                    config.load(files[i]);
+                    configurations[i] = config;
+                    bytes += files[i].length();
+                } catch (Exception e) {
+                    failures[i] = e;
+                }
+            }
+            return bytes;
+        }
+    }
+
+    @NotNull
+    private final ForkJoinPool pool;
+    @NotNull
+    private final Supplier<? extends JsonConfiguration> factory;
+
+    /**
+     * Creates a loader that runs on the common fork-join pool.
+     */
+    public BulkConfigurationLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a loader that runs on the given pool.
+     *
+     * @param pool The pool to load files on.
+     */
+    public BulkConfigurationLoader(@NotNull final ForkJoinPool pool) {
+        this(pool, JsonConfiguration::new);
+    }
+
+    /**
+     * Creates a loader that runs on the given pool, loading each file into a new configuration from the factory.
+     *
+     * @param pool The pool to load files on.
+     * @param factory Creates the configurations to load the files into, which allows setting their options.  Called
+     *                on the threads of the pool.
+     */
+    public BulkConfigurationLoader(@NotNull final ForkJoinPool pool,
+                                   @NotNull final Supplier<? extends JsonConfiguration> factory) {
+        this.pool = pool;
+        this.factory = factory;
+    }
+
+    /**
+     * Loads every file ending in .json directly inside a directory.
+     *
+     * @param directory The directory to load the files of.
+     * @return The outcome of the load.
+     * @throws IOException If the directory cannot be listed.
+     */
+    @NotNull
+    public Result loadDirectory(@NotNull final File directory) throws IOException {
+        return loadDirectory(directory, JSON_FILES);
+    }
+
+    /**
+     * Loads every file accepted by the filter directly inside a directory.
+     *
+     * @param directory The directory to load the files of.
+     * @param filter Decides which files of the directory are loaded.
+     * @return The outcome of the load.
+     * @throws IOException If the directory cannot be listed.
+     */
+    @NotNull
+    public Result loadDirectory(@NotNull final File directory, @NotNull final FileFilter filter) throws IOException {
+        final File[] files = directory.listFiles(filter);
+        if (files == null) {
+            throw new IOException("Cannot list files of " + directory);
+        }
+        return load(files);
+    }
+
+    /**
+     * Loads the given files.
+     *
+     * @param files The files to load.
+     * @return The outcome of the load.
+     */
+    @NotNull
+    public Result loadAll(@NotNull final Collection<File> files) {
+        return load(files.toArray(new File[files.size()]));
+    }
+
+    @NotNull
+    private Result load(@NotNull final File[] files) {
+        final JsonConfiguration[] configurations = new JsonConfiguration[files.length];
+        final Exception[] failures = new Exception[files.length];
+
+        // Done once here rather than by each configuration created on the pool.
+        JsonConfiguration.registerSerializables();
+        final long start = System.nanoTime();
+        final long bytes = pool.invoke(new LoadTask(factory, files, configurations, failures, 0, files.length));
+        final long elapsed = System.nanoTime() - start;
+
+        final Map<File, JsonConfiguration> loaded = new LinkedHashMap<File, JsonConfiguration>(files.length);
+        final Map<File, Exception> failed = new LinkedHashMap<File, Exception>();
+        for (int i = 0; i < files.length; i++) {
+            if (configurations[i] != null) {
+                loaded.put(files[i], configurations[i]);
+            } else {
+                failed.put(files[i], failures[i]);
+            }
+        }
+        return new Result(loaded, failed, bytes, elapsed);
+    }
+}
@@ -0,0 +1,429 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.MemorySection;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link JsonConfiguration} that may be read and written from any number of threads at once.
+ *
+ * The values are kept in a tree of immutable maps behind a single volatile reference.  Reads never lock: they walk
+ * whatever tree is current when they start.  Writes are serialized and replace only the maps on the path to the
+ * changed key before publishing the new tree, so their cost depends on the width of the sections along that path
+ * rather than on the size of the configuration.  Saving and {@link #saveToString()} write the tree that was current
+ * when they started, which is always consistent, while other threads keep reading and writing.  Loading parses into
+ * a separate configuration first and then publishes its values all at once.
+ *
+ * The sections handed out are live views of their path.  Values themselves are stored as given, so a List or other
+ * mutable value that is changed in place after being set is not protected by any of this.  Lazy loading and the
+ * reuse of the saved json of unchanged sections do not apply to this class.
+ */
+public class ConcurrentJsonConfiguration extends JsonConfiguration {
+
+    /**
+     * An immutable map of the values of a section.  It is a Map so that a snapshot can be written like any
+     * serialized tree.
+     */
+    static final class Node extends AbstractMap<String, Object> {
+
+        static final Node EMPTY = new Node(new LinkedHashMap<String, Object>(0));
+
+        @NotNull
+        private final Map<String, Object> values;
+
+        private Node(@NotNull final Map<String, Object> values) {
+            this.values = values;
+        }
+
+        @Override
+        public Object get(final Object key) {
+            return values.get(key);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @NotNull
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return Collections.unmodifiableMap(values).entrySet();
+        }
+
+        @NotNull
+        Node with(@NotNull final String key, @NotNull final Object value) {
+            final Map<String, Object> copy = new LinkedHashMap<String, Object>(values);
+            copy.put(key, value);
+            return new Node(copy);
+        }
+
+        @NotNull
+        Node without(@NotNull final String key) {
+            if (!values.containsKey(key)) {
+                return this;
+            }
+            final Map<String, Object> copy = new LinkedHashMap<String, Object>(values);
+            copy.remove(key);
+            return new Node(copy);
+        }
+
+        @NotNull
+        Node withAll(@NotNull final Node other) {
+            final Map<String, Object> copy = new LinkedHashMap<String, Object>(values);
+            copy.putAll(other.values);
+            return new Node(copy);
+        }
+
+        /**
+         * Copies the values of a section, or of a Map given for a section, turning nested sections and Maps into
+         * nodes.
+         */
+        @NotNull
+        static Node of(@NotNull final Map<?, ?> map) {
+            final Map<String, Object> values = new LinkedHashMap<String, Object>(map.size());
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                final Object value = entry.getValue();
+                if (value instanceof ConfigurationSection) {
+                    values.put(entry.getKey().toString(), of(((ConfigurationSection) value).getValues(false)));
+                } else if (value instanceof Map) {
+                    values.put(entry.getKey().toString(), of((Map<?, ?>) value));
+                } else if (value != null) {
+                    values.put(entry.getKey().toString(), value);
+                }
+            }
+            return new Node(values);
+        }
+    }
+
+    /**
+     * A live view of the section at a path of a {@link ConcurrentJsonConfiguration}.
+     */
+    static final class Section extends MemorySection {
+
+        Section(@NotNull final ConfigurationSection parent, @NotNull final String path) {
+            super(parent, path);
+        }
+
+        private ConcurrentJsonConfiguration config() {
+            return (ConcurrentJsonConfiguration) getRoot();
+        }
+
+        @Override
+        public Object get(final String path, final Object def) {
+            return config().get(this, path, def);
+        }
+
+        @Override
+        public void set(final String path, final Object value) {
+            config().set(this, path, value);
+        }
+
+        @Override
+        public ConfigurationSection createSection(final String path) {
+            return config().createSection(this, path, Node.EMPTY);
+        }
+
+        @Override
+        public ConfigurationSection createSection(final String path, final Map<?, ?> map) {
+            return config().createSection(this, path, Node.of(map));
+        }
+
+        @Override
+        public Set<String> getKeys(final boolean deep) {
+            return config().getKeys(this, deep);
+        }
+
+        @Override
+        public Map<String, Object> getValues(final boolean deep) {
+            return config().getValues(this, deep);
+        }
+    }
+
+    private final Object writeLock = new Object();
+    @NotNull
+    private volatile Node root = Node.EMPTY;
+    private volatile long modifications;
+
+    /**
+     * Loads up a configuration from a json formatted file.
+     *
+     * @param file The file to load the configuration from.
+     * @return The configuration loaded from the file contents.
+     * @see JsonConfiguration#loadConfiguration(File)
+     */
+    public static ConcurrentJsonConfiguration loadConfiguration(@NotNull final File file) {
+        return (ConcurrentJsonConfiguration) loadConfiguration(new ConcurrentJsonConfiguration(), file);
+    }
+
+    @Override
+    public Object get(final String path, final Object def) {
+        return get(this, path, def);
+    }
+
+    @Override
+    public void set(final String path, final Object value) {
+        set(this, path, value);
+    }
+
+    @Override
+    public ConfigurationSection createSection(final String path) {
+        return createSection(this, path, Node.EMPTY);
+    }
+
+    @Override
+    public ConfigurationSection createSection(final String path, final Map<?, ?> map) {
+        return createSection(this, path, Node.of(map));
+    }
+
+    @Override
+    public Set<String> getKeys(final boolean deep) {
+        return getKeys(this, deep);
+    }
+
+    @Override
+    public Map<String, Object> getValues(final boolean deep) {
+        return getValues(this, deep);
+    }
+
+    @Override
+    long modifications() {
+        return modifications;
+    }
+
+    @Override
+    long write(@NotNull final Writer writer) throws IOException {
+        return options().backend().save(root, writer, options().metrics());
+    }
+
+    @Override
+    Object serializeSnapshot() {
+        return SerializationHelper.serialize(root, options().metrics());
+    }
+
+    @Override
+    long read(@NotNull final String contents) throws InvalidConfigurationException {
+        final JsonConfiguration staging = staging();
+        final long values = staging.read(contents);
+        publish(staging);
+        return values;
+    }
+
+    @Override
+    long read(@NotNull final Reader reader) throws IOException, InvalidConfigurationException {
+        final JsonConfiguration staging = staging();
+        final long values = staging.read(reader);
+        publish(staging);
+        return values;
+    }
+
+    @Override
+    long readBinary(@NotNull final InputStream input) throws IOException, InvalidConfigurationException {
+        final JsonConfiguration staging = staging();
+        final long values = staging.readBinary(input);
+        publish(staging);
+        return values;
+    }
+
+    @NotNull
+    private JsonConfiguration staging() {
+        final JsonConfiguration staging = new JsonConfiguration();
+        staging.options().pathSeparator(options().pathSeparator()).stringPool(options().stringPool())
+                .metrics(options().metrics()).backend(options().backend()).maxSize(options().maxSize())
+                .maxDepth(options().maxDepth()).maxEntries(options().maxEntries())
+                .maxStringLength(options().maxStringLength());
+        return staging;
+    }
+
+    /**
+     * Puts the top level values of a loaded configuration into this one in a single step, the same way loading into
+     * a {@link JsonConfiguration} sets them one at a time.
+     */
+    private void publish(@NotNull final JsonConfiguration loaded) {
+        final Node values = Node.of(loaded.getValues(false));
+        synchronized (writeLock) {
+            root = root.withAll(values);
+            modifications++;
+        }
+    }
+
+    Object get(@NotNull final ConfigurationSection section, final String path, final Object def) {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null");
+        }
+        if (path.isEmpty()) {
+            return section;
+        }
+        final String fullPath = fullPath(section, path);
+        final Object value = lookup(root, fullPath);
+        if (value == null) {
+            return def;
+        }
+        return value instanceof Node ? view(fullPath) : value;
+    }
+
+    void set(@NotNull final ConfigurationSection section, final String path, final Object value) {
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("Cannot set to an empty path");
+        }
+        final Object stored = value instanceof ConfigurationSection
+                ? Node.of(((ConfigurationSection) value).getValues(false)) : value;
+        final String fullPath = fullPath(section, path);
+        synchronized (writeLock) {
+            root = with(root, fullPath, 0, stored);
+            modifications++;
+        }
+    }
+
+    @NotNull
+    ConfigurationSection createSection(@NotNull final ConfigurationSection section, final String path,
+                                       @NotNull final Node values) {
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("Cannot create section at empty path");
+        }
+        final String fullPath = fullPath(section, path);
+        synchronized (writeLock) {
+            root = with(root, fullPath, 0, values);
+            modifications++;
+        }
+        return view(fullPath);
+    }
+
+    @NotNull
+    Set<String> getKeys(@NotNull final ConfigurationSection section, final boolean deep) {
+        final Set<String> result = new LinkedHashSet<String>();
+        final ConfigurationSection defaults = copiedDefaults(section);
+        if (defaults != null) {
+            result.addAll(defaults.getKeys(deep));
+        }
+        final Object node = section == this ? root : lookup(root, section.getCurrentPath());
+        if (node instanceof Node) {
+            collectKeys(result, (Node) node, "", deep);
+        }
+        return result;
+    }
+
+    @NotNull
+    Map<String, Object> getValues(@NotNull final ConfigurationSection section, final boolean deep) {
+        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        final ConfigurationSection defaults = copiedDefaults(section);
+        if (defaults != null) {
+            result.putAll(defaults.getValues(deep));
+        }
+        final Object node = section == this ? root : lookup(root, section.getCurrentPath());
+        if (node instanceof Node) {
+            collectValues(result, (Node) node, section.getCurrentPath(), "", deep);
+        }
+        return result;
+    }
+
+    private ConfigurationSection copiedDefaults(@NotNull final ConfigurationSection section) {
+        return options().copyDefaults() ? section.getDefaultSection() : null;
+    }
+
+    private void collectKeys(@NotNull final Set<String> output, @NotNull final Node node, @NotNull final String prefix,
+                             final boolean deep) {
+        for (final Map.Entry<String, Object> entry : node.entrySet()) {
+            final String key = prefix + entry.getKey();
+            output.add(key);
+            if (deep && entry.getValue() instanceof Node) {
+                collectKeys(output, (Node) entry.getValue(), key + options().pathSeparator(), true);
+            }
+        }
+    }
+
+    private void collectValues(@NotNull final Map<String, Object> output, @NotNull final Node node,
+                               @NotNull final String base, @NotNull final String prefix, final boolean deep) {
+        for (final Map.Entry<String, Object> entry : node.entrySet()) {
+            final String key = prefix + entry.getKey();
+            if (entry.getValue() instanceof Node) {
+                output.put(key, view(base.isEmpty() ? key : base + options().pathSeparator() + key));
+                if (deep) {
+                    collectValues(output, (Node) entry.getValue(), base, key + options().pathSeparator(), true);
+                }
+            } else {
+                output.put(key, entry.getValue());
+            }
+        }
+    }
+
+    @NotNull
+    private String fullPath(@NotNull final ConfigurationSection section, @NotNull final String path) {
+        return section == this ? path : section.getCurrentPath() + options().pathSeparator() + path;
+    }
+
+    /**
+     * @return the value at a path from the root, or null if there is none.
+     */
+    private Object lookup(@NotNull final Node node, @NotNull final String fullPath) {
+        final char separator = options().pathSeparator();
+        Node current = node;
+        int start = 0;
+        while (true) {
+            final int end = fullPath.indexOf(separator, start);
+            final Object value = current.get(end == -1 ? fullPath.substring(start) : fullPath.substring(start, end));
+            if (end == -1) {
+                return value;
+            }
+            if (!(value instanceof Node)) {
+                return null;
+            }
+            current = (Node) value;
+            start = end + 1;
+        }
+    }
+
+    /**
+     * @return a copy of the node with the value at the path below it replaced, creating or replacing sections on the
+     * way as {@link MemorySection#set(String, Object)} does.
+     */
+    @NotNull
+    private Node with(@NotNull final Node node, @NotNull final String fullPath, final int start, final Object value) {
+        final int end = fullPath.indexOf(options().pathSeparator(), start);
+        if (end == -1) {
+            final String key = fullPath.substring(start);
+            return value == null ? node.without(key) : node.with(key, value);
+        }
+        final String key = fullPath.substring(start, end);
+        final Object child = node.get(key);
+        if (!(child instanceof Node) && value == null) {
+            return node;
+        }
+        return node.with(key, with(child instanceof Node ? (Node) child : Node.EMPTY, fullPath, end + 1, value));
+    }
+
+    @NotNull
+    private ConfigurationSection view(@NotNull final String fullPath) {
+        final char separator = options().pathSeparator();
+        ConfigurationSection section = this;
+        int start = 0;
+        int end;
+        while ((end = fullPath.indexOf(separator, start)) != -1) {
+            section = new Section(section, fullPath.substring(start, end));
+            start = end + 1;
+        }
+        return new Section(section, fullPath.substring(start));
+    }
+}
@@ -0,0 +1,475 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.google.common.base.Charsets;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reloads json configuration files when they change on disk.
+ *
+ * Changes are picked up through a {@link WatchService} on the directories of the watched files instead of by polling.
+ * Events for a file are debounced, so a file written in several steps is reloaded once it has been quiet for a
+ * while.  A reloaded file whose contents hash the same as when it was last loaded is not parsed again, and a file
+ * that parses to the same values is not reported, so only actual changes reach the listener, along with the paths
+ * that changed.
+ *
+ * Files are reloaded on a thread of the watcher, one at a time, and listeners are called on that thread as well
+ * unless another executor is given.  A file that cannot be read or parsed keeps its last configuration and is
+ * reported to {@link Listener#failed(File, Exception)}; it is reloaded again with its next change.
+ */
+public class ConfigurationWatcher implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(ConfigurationWatcher.class.getName());
+
+    /**
+     * How long a file has to be quiet before it is reloaded, unless given otherwise.
+     */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 250;
+
+    /**
+     * Receives the configurations of watched files that changed.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Called after a watched file was reloaded with different values.
+         *
+         * @param change What changed.
+         */
+        void reloaded(@NotNull Change change);
+
+        /**
+         * Called when a watched file changed but could not be reloaded.  Logs a warning by default.
+         *
+         * @param file The file that could not be reloaded.
+         * @param e The reason.
+         */
+        default void failed(@NotNull final File file, @NotNull final Exception e) {
+            LOG.log(Level.WARNING, "Cannot reload " + file, e);
+        }
+    }
+
+    /**
+     * A reload of a watched file.
+     */
+    public static final class Change {
+
+        @NotNull
+        private final File file;
+        @NotNull
+        private final JsonConfiguration previous;
+        @NotNull
+        private final JsonConfiguration configuration;
+        @NotNull
+        private final SortedSet<String> changedPaths;
+
+        private Change(@NotNull final File file, @NotNull final JsonConfiguration previous,
+                       @NotNull final JsonConfiguration configuration, @NotNull final SortedSet<String> changedPaths) {
+            this.file = file;
+            this.previous = previous;
+            this.configuration = configuration;
+            this.changedPaths = Collections.unmodifiableSortedSet(changedPaths);
+        }
+
+        /**
+         * @return The file that changed.
+         */
+        @NotNull
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return The configuration as it was loaded before.
+         */
+        @NotNull
+        public JsonConfiguration getPrevious() {
+            return previous;
+        }
+
+        /**
+         * @return The configuration as it was loaded now.
+         */
+        @NotNull
+        public JsonConfiguration getConfiguration() {
+            return configuration;
+        }
+
+        /**
+         * @return Every path whose value was added, removed or changed, including those of sections, in order.
+         */
+        @NotNull
+        public SortedSet<String> getChangedPaths() {
+            return changedPaths;
+        }
+    }
+
+    /**
+     * A watched file.  Closing it stops watching the file.
+     */
+    public final class Watch implements Closeable {
+
+        @NotNull
+        private final File file;
+        @NotNull
+        private final Path path;
+        @NotNull
+        private final Supplier<? extends JsonConfiguration> factory;
+        @NotNull
+        private final Listener listener;
+        private volatile JsonConfiguration configuration;
+        private byte[] hash;
+        private ScheduledFuture<?> pending;
+        private volatile boolean closed;
+
+        private Watch(@NotNull final File file, @NotNull final Path path,
+                      @NotNull final Supplier<? extends JsonConfiguration> factory, @NotNull final Listener listener) {
+            this.file = file;
+            this.path = path;
+            this.factory = factory;
+            this.listener = listener;
+        }
+
+        /**
+         * @return The watched file.
+         */
+        @NotNull
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return The configuration the file was last loaded into.
+         */
+        @NotNull
+        public JsonConfiguration getConfiguration() {
+            return configuration;
+        }
+
+        @Override
+        public void close() {
+            unwatch(this);
+        }
+    }
+
+    @NotNull
+    private final WatchService service;
+    @NotNull
+    private final ScheduledExecutorService reloader;
+    @NotNull
+    private final Executor callbacks;
+    private final long debounceMillis;
+    private final Map<Path, WatchKey> directories = new HashMap<Path, WatchKey>();
+    private final Map<Path, List<Watch>> watches = new HashMap<Path, List<Watch>>();
+
+    /**
+     * Creates a watcher that debounces changes by {@link #DEFAULT_DEBOUNCE_MILLIS} and calls listeners on its own
+     * thread.
+     *
+     * @throws IOException If the file system cannot be watched.
+     */
+    public ConfigurationWatcher() throws IOException {
+        this(DEFAULT_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS, null);
+    }
+
+    /**
+     * Creates a watcher.
+     *
+     * @param debounce How long a file has to be quiet before it is reloaded.
+     * @param unit The unit of the debounce.
+     * @param callbacks The executor to call listeners on, or null to call them on the thread of the watcher.
+     * @throws IOException If the file system cannot be watched.
+     */
+    public ConfigurationWatcher(final long debounce, @NotNull final TimeUnit unit, final Executor callbacks)
+            throws IOException {
+        if (debounce < 0) {
+            throw new IllegalArgumentException("debounce must not be negative");
+        }
+        this.service = FileSystems.getDefault().newWatchService();
+        this.debounceMillis = unit.toMillis(debounce);
+        final ScheduledThreadPoolExecutor reloader = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "JsonConfiguration reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reloader.setRemoveOnCancelPolicy(true);
+        this.reloader = reloader;
+        this.callbacks = callbacks != null ? callbacks : reloader;
+
+        final Thread thread = new Thread(this::run, "JsonConfiguration watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Loads a file into a {@link JsonConfiguration} and watches it for changes.
+     *
+     * @param file The file to watch.
+     * @param listener Receives the reloaded configurations.
+     * @return The watch, which holds the latest configuration of the file.
+     * @throws IOException If the file cannot be read or its directory cannot be watched.
+     * @throws InvalidConfigurationException If the file is not valid json.
+     */
+    @NotNull
+    public Watch watch(@NotNull final File file, @NotNull final Listener listener)
+            throws IOException, InvalidConfigurationException {
+        return watch(file, JsonConfiguration::new, listener);
+    }
+
+    /**
+     * Loads a file and watches it for changes, loading it into a new configuration from the factory each time.
+     *
+     * @param file The file to watch.
+     * @param factory Creates the configurations to load the file into, which allows setting their options.
+     * @param listener Receives the reloaded configurations.
+     * @return The watch, which holds the latest configuration of the file.
+     * @throws IOException If the file cannot be read or its directory cannot be watched.
+     * @throws InvalidConfigurationException If the file is not valid json.
+     */
+    @NotNull
+    public Watch watch(@NotNull final File file, @NotNull final Supplier<? extends JsonConfiguration> factory,
+                       @NotNull final Listener listener) throws IOException, InvalidConfigurationException {
+        final Path path = file.getAbsoluteFile().toPath().normalize();
+        final Watch watch = new Watch(file, path, factory, listener);
+        final byte[] contents = Files.readAllBytes(path);
+        watch.configuration = load(factory.get(), contents);
+        watch.hash = hash(contents);
+
+        final Path directory = path.getParent();
+        synchronized (this) {
+            if (!directories.containsKey(directory)) {
+                directories.put(directory, directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY));
+            }
+            watches.computeIfAbsent(path, key -> new ArrayList<Watch>(1)).add(watch);
+        }
+        return watch;
+    }
+
+    /**
+     * Stops watching every file.  Reloads that are waiting for their debounce are dropped.
+     *
+     * @throws IOException If the watch service cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            for (final List<Watch> list : watches.values()) {
+                for (final Watch watch : list) {
+                    watch.closed = true;
+                }
+            }
+            watches.clear();
+            directories.clear();
+        }
+        reloader.shutdownNow();
+        service.close();
+    }
+
+    private synchronized void unwatch(@NotNull final Watch watch) {
+        watch.closed = true;
+        if (watch.pending != null) {
+            watch.pending.cancel(false);
+        }
+        final List<Watch> list = watches.get(watch.path);
+        if (list == null || !list.remove(watch) || !list.isEmpty()) {
+            return;
+        }
+        watches.remove(watch.path);
+        final Path directory = watch.path.getParent();
+        for (final Path path : watches.keySet()) {
+            if (path.getParent().equals(directory)) {
+                return;
+            }
+        }
+        final WatchKey key = directories.remove(directory);
+        if (key != null) {
+            key.cancel();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            final WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            final Path directory = (Path) key.watchable();
+            for (final WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Events were lost, so any file of the directory may have changed.
+                    scheduleDirectory(directory);
+                } else {
+                    schedule(directory.resolve((Path) event.context()));
+                }
+            }
+            if (!key.reset()) {
+                synchronized (this) {
+                    directories.remove(directory);
+                }
+            }
+        }
+    }
+
+    private synchronized void scheduleDirectory(@NotNull final Path directory) {
+        for (final Path path : watches.keySet()) {
+            if (path.getParent().equals(directory)) {
+                schedule(path);
+            }
+        }
+    }
+
+    private synchronized void schedule(@NotNull final Path path) {
+        final List<Watch> list = watches.get(path);
+        if (list == null || reloader.isShutdown()) {
+            return;
+        }
+        for (final Watch watch : list) {
+            if (watch.pending != null) {
+                watch.pending.cancel(false);
+            }
+            watch.pending = reloader.schedule(() -> reload(watch), debounceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reloads a watched file.  Only ever runs on the reloader thread, which is all that touches the hash.
+     */
+    private void reload(@NotNull final Watch watch) {
+        if (watch.closed) {
+            return;
+        }
+        final byte[] contents;
+        try {
+            contents = Files.readAllBytes(watch.path);
+        } catch (NoSuchFileException e) {
+            // Deleted, or replaced and not back yet; its creation is another change.
+            return;
+        } catch (IOException e) {
+            deliver(() -> watch.listener.failed(watch.file, e));
+            return;
+        }
+        final byte[] hash = hash(contents);
+        if (Arrays.equals(hash, watch.hash)) {
+            return;
+        }
+        final JsonConfiguration config;
+        try {
+            config = load(watch.factory.get(), contents);
+        } catch (IOException | InvalidConfigurationException e) {
+            deliver(() -> watch.listener.failed(watch.file, e));
+            return;
+        }
+        final JsonConfiguration previous = watch.configuration;
+        final SortedSet<String> changed = diff(previous, config);
+        watch.hash = hash;
+        watch.configuration = config;
+        if (!changed.isEmpty() && !watch.closed) {
+            final Change change = new Change(watch.file, previous, config, changed);
+            deliver(() -> watch.listener.reloaded(change));
+        }
+    }
+
+    private void deliver(@NotNull final Runnable callback) {
+        try {
+            callbacks.execute(callback);
+        } catch (RejectedExecutionException e) {
+            // Closed while reloading.
+        }
+    }
+
+    @NotNull
+    private static JsonConfiguration load(@NotNull final JsonConfiguration config, @NotNull final byte[] contents)
+            throws IOException, InvalidConfigurationException {
+        final InputStream input = JsonCompression.decompress(new ByteArrayInputStream(contents));
+        if (JsonBinaryFormat.hasHeader(input)) {
+            config.loadBinary(input);
+        } else {
+            config.load(new InputStreamReader(input, Charsets.UTF_8));
+        }
+        return config;
+    }
+
+    @NotNull
+    private static byte[] hash(@NotNull final byte[] contents) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(contents);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return every path whose value differs between the two sections.
+     */
+    @NotNull
+    static SortedSet<String> diff(@NotNull final ConfigurationSection before,
+                                  @NotNull final ConfigurationSection after) {
+        final Map<String, Object> oldValues = before.getValues(true);
+        final Map<String, Object> newValues = after.getValues(true);
+        final SortedSet<String> changed = new TreeSet<String>();
+        for (final Map.Entry<String, Object> entry : oldValues.entrySet()) {
+            if (!same(entry.getValue(), newValues.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (final String path : newValues.keySet()) {
+            if (!oldValues.containsKey(path)) {
+                changed.add(path);
+            }
+        }
+        return changed;
+    }
+
+    private static boolean same(final Object before, final Object after) {
+        // Sections are compared by their values, which are compared on their own.
+        if (before instanceof ConfigurationSection) {
+            return after instanceof ConfigurationSection;
+        }
+        return Objects.equals(before, after);
+    }
+}
@@ -0,0 +1,56 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A reader that counts the characters read through it.
+ */
+final class CountingReader extends FilterReader {
+
+    private long count;
+
+    CountingReader(@NotNull final Reader in) {
+        super(in);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int c = super.read();
+        if (c != -1) {
+            count++;
+        }
+        return c;
+    }
+
+    @Override
+    public int read(@NotNull final char[] buffer, final int off, final int len) throws IOException {
+        final int read = super.read(buffer, off, len);
+        if (read > 0) {
+            count += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long skipped = super.skip(n);
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
@@ -0,0 +1,349 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.json.JsonTokenizer.Token;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link JsonConfiguration} for frequently changed data, such as counters or balances, that records every change
+ * as a line appended to a journal next to its file instead of rewriting the whole file.
+ *
+ * The journal is the file name followed by ".journal".  Each line is a json object, either
+ * <code>{"set":["a","b"],"value":...}</code> or <code>{"remove":["a","b"]}</code>, naming the keys of the path
+ * changed.  Opening the configuration loads the file and replays the journal on top of it.  Once the journal grows
+ * past a size or its oldest line past an age, it is compacted: the configuration is saved to the file, atomically
+ * where the file system allows it, and the journal is emptied.  {@link #close()} compacts as well.
+ *
+ * A line cut short by a crash while it was appended is dropped, along with the change it recorded, and cut from the
+ * journal when it is opened.  Any other line that cannot be read makes opening fail.
+ *
+ * Only changes made through set and createSection are journaled.  Lists, maps and serializable objects changed in
+ * place, as well as anything loaded into the configuration after it was opened, are only written to the file the
+ * next time it is compacted.  Like {@link JsonConfiguration}, this is not safe to change from several threads.
+ */
+public class JournaledJsonConfiguration extends JsonConfiguration implements Closeable {
+
+    /**
+     * The size the journal may reach before it is compacted, unless given otherwise.
+     */
+    public static final long DEFAULT_MAX_JOURNAL_BYTES = 1024 * 1024;
+
+    /**
+     * The age in minutes the oldest line of the journal may reach before it is compacted, unless given otherwise.
+     */
+    public static final long DEFAULT_MAX_JOURNAL_MINUTES = 10;
+
+    private static final String SET = "set";
+    private static final String REMOVE = "remove";
+    private static final String VALUE = "value";
+
+    @NotNull
+    private final File file;
+    @NotNull
+    private final File journalFile;
+    private final long maxJournalBytes;
+    private final long maxJournalNanos;
+    private FileChannel journal;
+    private long journalStarted;
+
+    private JournaledJsonConfiguration(@NotNull final File file, final long maxJournalBytes,
+                                       final long maxJournalNanos) {
+        this.file = file;
+        this.journalFile = new File(file.getPath() + ".journal");
+        this.maxJournalBytes = maxJournalBytes;
+        this.maxJournalNanos = maxJournalNanos;
+    }
+
+    /**
+     * Opens a journaled configuration with the default compaction thresholds.
+     *
+     * @param file The file to load the configuration from and compact it into.  It is created once compacted if it
+     *             does not exist.
+     * @return The configuration with the journal replayed.
+     * @throws IOException If the file or its journal cannot be read, or the journal cannot be opened for writing.
+     * @throws InvalidConfigurationException If the file or its journal is not valid.
+     */
+    @NotNull
+    public static JournaledJsonConfiguration open(@NotNull final File file)
+            throws IOException, InvalidConfigurationException {
+        return open(file, DEFAULT_MAX_JOURNAL_BYTES, DEFAULT_MAX_JOURNAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Opens a journaled configuration.
+     *
+     * @param file The file to load the configuration from and compact it into.  It is created once compacted if it
+     *             does not exist.
+     * @param maxJournalBytes The size the journal may reach before it is compacted.
+     * @param maxJournalAge The age the oldest line of the journal may reach before it is compacted, or 0 to compact
+     *                      by size only.
+     * @param unit The unit of the age.
+     * @return The configuration with the journal replayed.
+     * @throws IOException If the file or its journal cannot be read, or the journal cannot be opened for writing.
+     * @throws InvalidConfigurationException If the file or its journal is not valid.
+     */
+    @NotNull
+    public static JournaledJsonConfiguration open(@NotNull final File file, final long maxJournalBytes,
+                                                  final long maxJournalAge, @NotNull final TimeUnit unit)
+            throws IOException, InvalidConfigurationException {
+        if (maxJournalBytes <= 0) {
+            throw new IllegalArgumentException("The journal size must be positive");
+        }
+        if (maxJournalAge < 0) {
+            throw new IllegalArgumentException("The journal age must not be negative");
+        }
+        final JournaledJsonConfiguration config = new JournaledJsonConfiguration(file, maxJournalBytes,
+                unit.toNanos(maxJournalAge));
+        if (file.exists()) {
+            config.load(file);
+        }
+        config.openJournal();
+        return config;
+    }
+
+    /**
+     * @return The file the configuration is compacted into.
+     */
+    @NotNull
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return The journal the changes since the last compaction are appended to.
+     */
+    @NotNull
+    public File getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * @return The current size of the journal.
+     * @throws IOException If the size cannot be read.
+     */
+    public long getJournalSize() throws IOException {
+        return journal().size();
+    }
+
+    private void openJournal() throws IOException, InvalidConfigurationException {
+        journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            replay();
+        } catch (IOException | InvalidConfigurationException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+        if (journal.size() > 0) {
+            journalStarted = System.nanoTime();
+        }
+    }
+
+    private void replay() throws IOException, InvalidConfigurationException {
+        final long size = journal.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new InvalidConfigurationException("Journal " + journalFile + " is too large to replay");
+        }
+        final ByteBuffer bytes = ByteBuffer.allocate((int) size);
+        while (bytes.hasRemaining() && journal.read(bytes, bytes.position()) >= 0) {
+            // Keep reading until the buffer is full.
+        }
+        final byte[] data = bytes.array();
+        int end = data.length;
+        while (end > 0 && data[end - 1] != '\n') {
+            end--;
+        }
+        if (end < data.length) {
+            // Whatever follows the last newline was still being appended when the process went down.
+            journal.truncate(end);
+        }
+        journal.position(end);
+
+        beginQuiet();
+        try {
+            int line = 0;
+            for (int start = 0; start < end; ) {
+                int newline = start;
+                while (data[newline] != '\n') {
+                    newline++;
+                }
+                line++;
+                final String entry = new String(data, start, newline - start, StandardCharsets.UTF_8).trim();
+                if (!entry.isEmpty()) {
+                    try {
+                        apply(entry);
+                    } catch (InvalidConfigurationException e) {
+                        throw new InvalidConfigurationException("Invalid line " + line + " of journal " + journalFile,
+                                e);
+                    }
+                }
+                start = newline + 1;
+            }
+        } finally {
+            endQuiet();
+        }
+    }
+
+    private void apply(@NotNull final String entry) throws IOException, InvalidConfigurationException {
+        final JsonTokenizer tokenizer = new JsonTokenizer(entry, options().stringPool());
+        expect(tokenizer, Token.START_OBJECT);
+        expect(tokenizer, Token.FIELD_NAME);
+        final boolean set = SET.equals(tokenizer.name());
+        if (!set && !REMOVE.equals(tokenizer.name())) {
+            throw new InvalidConfigurationException("Unknown journal operation: " + tokenizer.name());
+        }
+        expect(tokenizer, Token.START_ARRAY);
+        final List<String> keys = new ArrayList<String>();
+        Token token;
+        while ((token = tokenizer.next()) == Token.VALUE && tokenizer.value() instanceof String) {
+            keys.add((String) tokenizer.value());
+        }
+        if (token != Token.END_ARRAY || keys.isEmpty()) {
+            throw new InvalidConfigurationException("Expected a non empty list of keys");
+        }
+        final String key = keys.remove(keys.size() - 1);
+
+        ConfigurationSection section = this;
+        for (final String name : keys) {
+            final ConfigurationSection child = section.getConfigurationSection(name);
+            if (child == null && !set) {
+                section = null;
+                break;
+            }
+            section = child != null ? child : section.createSection(name);
+        }
+        if (set) {
+            expect(tokenizer, Token.FIELD_NAME);
+            if (!VALUE.equals(tokenizer.name())) {
+                throw new InvalidConfigurationException("Expected a value to set");
+            }
+            // Takes the closing brace along with the value.
+            new JsonSectionLoader(section).loadValue(key, tokenizer);
+        } else {
+            expect(tokenizer, Token.END_OBJECT);
+            if (section != null) {
+                section.set(key, null);
+            }
+        }
+        if (tokenizer.next() != null) {
+            throw new InvalidConfigurationException("Unexpected data after journal entry");
+        }
+    }
+
+    private static void expect(@NotNull final JsonTokenizer tokenizer, @NotNull final Token expected)
+            throws IOException, InvalidConfigurationException {
+        final Token token = tokenizer.next();
+        if (token != expected) {
+            throw new InvalidConfigurationException("Expected " + expected + " but found " + token);
+        }
+    }
+
+    @Override
+    boolean recordsChanges() {
+        return journal != null;
+    }
+
+    @Override
+    void recordChange(@NotNull final ConfigurationSection section, @NotNull final String key, final Object value) {
+        final List<String> keys = new ArrayList<String>();
+        for (ConfigurationSection current = section; current != this; current = current.getParent()) {
+            keys.add(0, current.getName());
+        }
+        keys.add(key);
+        final Map<String, Object> entry = new LinkedHashMap<String, Object>(4);
+        if (value == null) {
+            entry.put(REMOVE, keys);
+        } else {
+            entry.put(SET, keys);
+            entry.put(VALUE, value);
+        }
+        try {
+            append(entry);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not append to journal " + journalFile, e);
+        }
+    }
+
+    private void append(@NotNull final Map<String, Object> entry) throws IOException {
+        final StringWriter line = new StringWriter();
+        options().backend().save(entry, line, options().metrics());
+        line.write('\n');
+        // A single write, so a crash leaves at most one partial line at the end.
+        final ByteBuffer bytes = ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8));
+        final FileChannel channel = journal();
+        if (channel.size() == 0) {
+            journalStarted = System.nanoTime();
+        }
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        if (channel.size() >= maxJournalBytes
+                || (maxJournalNanos > 0 && System.nanoTime() - journalStarted >= maxJournalNanos)) {
+            compact();
+        }
+    }
+
+    /**
+     * Saves the configuration to its file and empties the journal.
+     *
+     * @throws IOException If the file cannot be written or the journal cannot be emptied.
+     */
+    public void compact() throws IOException {
+        final FileChannel channel = journal();
+        final long start = System.nanoTime();
+        AsyncConfigurationIO.writeAtomically(file, serializeSnapshot(), options().binary(),
+                JsonCompression.level(options(), file), options().backend(), options().metrics());
+        reportSave(file, file.length(), start);
+        // The file holds everything now, so losing the journal from here on loses nothing.
+        channel.truncate(0);
+        channel.position(0);
+    }
+
+    /**
+     * Compacts the journal if it holds any changes and closes it.  The configuration can still be read afterwards,
+     * but changing it is no longer journaled.
+     *
+     * @throws IOException If compacting fails, in which case the journal is closed nonetheless and replayed the next
+     *                     time the file is opened.
+     */
+    @Override
+    public void close() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        try {
+            if (journal.size() > 0) {
+                compact();
+            }
+        } finally {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    @NotNull
+    private FileChannel journal() throws IOException {
+        if (journal == null) {
+            throw new IOException("Journal " + journalFile + " is closed");
+        }
+        return journal;
+    }
+}
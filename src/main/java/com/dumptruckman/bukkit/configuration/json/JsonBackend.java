@@ -0,0 +1,89 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.util.ConfigurationMetrics;
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+
+/**
+ * Parses and generates the json text of a {@link JsonConfiguration}, selected through
+ * {@link JsonConfigurationOptions#backend(JsonBackend)}.
+ *
+ * Every backend must load the same values from the same json: objects become sections, except objects carrying the
+ * {@link org.bukkit.configuration.serialization.ConfigurationSerialization#SERIALIZED_TYPE_KEY}, which are
+ * deserialized; arrays become Lists; whole numbers become Integers when they fit in one and Longs otherwise, and
+ * other numbers Doubles.  Every backend must also write the same json for the same values, which is the output of
+ * json-smart's {@code JSONValue.toJSONString} for the values as given by {@link SerializationHelper#serialize(Object)}.
+ *
+ * The compact binary encoding does not go through the backend.
+ */
+public interface JsonBackend {
+
+    /**
+     * The default backend, which parses straight into sections and writes straight from them without building a
+     * tree of Maps and Lists in between.  It is the only backend supporting
+     * {@link JsonConfigurationOptions#lazyLoading(boolean) lazy loading},
+     * {@link JsonConfigurationOptions#stringPool(StringPool) string pools} and reusing the json of unchanged
+     * sections.
+     */
+    JsonBackend STREAMING = new StreamingJsonBackend();
+
+    /**
+     * The backend this library originally used, json-smart, which parses the whole document into Maps and Lists
+     * first and serializes the whole configuration into them before generating json.  The order of the keys of a
+     * loaded object is not kept.
+     */
+    JsonBackend JSON_SMART = new JsonSmartBackend();
+
+    /**
+     * Loads json into a configuration, setting each of its top level values in the configuration.
+     *
+     * @param reader The json to load, which is not closed.
+     * @param config The configuration to load it into.
+     * @return The number of sections and values created, including those inside lists and serialized objects.
+     * @throws IOException If the reader throws.
+     * @throws InvalidConfigurationException If the reader does not contain a valid json object.
+     */
+    long load(@NotNull Reader reader, @NotNull JsonConfiguration config)
+            throws IOException, InvalidConfigurationException;
+
+    /**
+     * Loads json text into a configuration the same way as {@link #load(Reader, JsonConfiguration)}.
+     *
+     * @param contents The json to load.
+     * @param config The configuration to load it into.
+     * @return The number of sections and values created, including those inside lists and serialized objects.
+     * @throws InvalidConfigurationException If the text is not a valid json object.
+     */
+    default long load(@NotNull final String contents, @NotNull final JsonConfiguration config)
+            throws InvalidConfigurationException {
+        try {
+            return load(new StringReader(contents), config);
+        } catch (IOException e) {
+            // StringReader does not throw.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes values as json.
+     *
+     * @param values A {@link ConfigurationSection}, or a Map as produced by {@link SerializationHelper#serialize(Object)},
+     *               which may still hold sections and {@link ConfigurationSerializable}s.
+     * @param writer Where to write the json, which is neither flushed nor closed.
+     * @param metrics Where to report errors that are logged and then skipped, if anywhere.
+     * @return The number of characters written.
+     * @throws IOException If the writer throws.
+     */
+    long save(@NotNull Object values, @NotNull Writer writer, ConfigurationMetrics metrics) throws IOException;
+}
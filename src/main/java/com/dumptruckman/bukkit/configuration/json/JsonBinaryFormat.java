@@ -0,0 +1,67 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The constants of the compact binary encoding written by {@link JsonBinaryWriter} and read by
+ * {@link JsonBinaryReader}.
+ *
+ * A document starts with {@link #HEADER} followed by its top level object.  Every value starts with a one byte tag.
+ * Integers are zigzag encoded varints, doubles their 8 byte IEEE 754 bits and strings their varint UTF-8 length
+ * followed by the bytes.  Objects and arrays start with their varint entry count.
+ *
+ * Strings are kept in a dictionary shared by keys and values, so each distinct one is only stored once.  Every key
+ * goes into it, values only if they are at most {@link #MAX_INTERNED_LENGTH} chars long.  A key is written as a
+ * varint which is either 0, followed by a new string, or one more than the index of a string already in the
+ * dictionary; values use {@link #STRING} and {@link #STRING_REF} instead.
+ */
+final class JsonBinaryFormat {
+
+    /**
+     * Starts with a byte that never starts UTF-8 text, so it cannot be mistaken for json.
+     */
+    static final byte[] HEADER = {(byte) 0xB7, 'J', 'S', 'B', 1};
+
+    static final int MAX_INTERNED_LENGTH = 64;
+
+    static final byte NULL = 0;
+    static final byte FALSE = 1;
+    static final byte TRUE = 2;
+    static final byte INT = 3;
+    static final byte LONG = 4;
+    static final byte BIG_INTEGER = 5;
+    static final byte DOUBLE = 6;
+    static final byte STRING = 7;
+    static final byte STRING_REF = 8;
+    static final byte OBJECT = 9;
+    static final byte ARRAY = 10;
+
+    private JsonBinaryFormat() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Checks whether a stream starts with {@link #HEADER} without consuming any of it.
+     *
+     * @param input a stream supporting {@link InputStream#mark(int)}.
+     */
+    static boolean hasHeader(@NotNull final InputStream input) throws IOException {
+        input.mark(HEADER.length);
+        try {
+            for (final byte expected : HEADER) {
+                if (input.read() != (expected & 0xFF)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            input.reset();
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.json.JsonTokenizer.Token;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.dumptruckman.bukkit.configuration.json.JsonBinaryFormat.*;
+
+/**
+ * Reads the binary encoding described by {@link JsonBinaryFormat} as the same tokens {@link JsonTokenizer} produces
+ * for the equivalent json text.
+ */
+final class JsonBinaryReader implements JsonTokenSource {
+
+    @NotNull
+    private final InputStream in;
+    private final StringPool pool;
+    private final long maxSize;
+    private final int maxDepth;
+    private final int maxEntries;
+    private final int maxStringLength;
+    /** Only followed if there are limits, to name the path of what exceeds them. */
+    private final JsonPath path;
+    private final byte[] buffer = new byte[8192];
+    private int pos;
+    private int limit;
+    private long consumed;
+
+    private final List<String> dictionary = new ArrayList<String>();
+
+    private int[] remaining = new int[32];
+    private boolean[] objects = new boolean[32];
+    private int depth;
+    private boolean started;
+    private boolean finished;
+    private boolean expectValue;
+
+    private String name;
+    private Object value;
+
+    /**
+     * @param pool the pool to take names and string values from, or null to always create new Strings.
+     */
+    JsonBinaryReader(@NotNull final InputStream in, final StringPool pool) {
+        this(in, pool, null);
+    }
+
+    /**
+     * @param pool the pool to take names and string values from, or null to always create new Strings.
+     * @param limits the limits to hold the document to, or null for none.
+     */
+    JsonBinaryReader(@NotNull final InputStream in, final StringPool pool, final JsonLimits limits) {
+        this.in = in;
+        this.pool = pool;
+        if (limits != null) {
+            maxSize = limits.maxSize;
+            maxDepth = limits.maxDepth;
+            maxEntries = limits.maxEntries;
+            maxStringLength = limits.maxStringLength;
+            path = new JsonPath(limits.separator);
+        } else {
+            maxSize = Long.MAX_VALUE;
+            maxDepth = Integer.MAX_VALUE;
+            maxEntries = Integer.MAX_VALUE;
+            maxStringLength = Integer.MAX_VALUE;
+            path = null;
+        }
+    }
+
+    @Override
+    public Token next() throws IOException, InvalidConfigurationException {
+        if (finished) {
+            if (pos < limit || fill()) {
+                throw error("Unexpected data after the end of the document");
+            }
+            return null;
+        }
+        if (!started) {
+            for (final byte expected : HEADER) {
+                if (readByte() != expected) {
+                    throw error("Missing header");
+                }
+            }
+            started = true;
+            return readValue();
+        }
+        if (expectValue) {
+            expectValue = false;
+            return readValue();
+        }
+        final int top = depth - 1;
+        if (remaining[top] == 0) {
+            if (path != null) {
+                path.pop();
+            }
+            depth--;
+            finished = depth == 0;
+            return objects[top] ? Token.END_OBJECT : Token.END_ARRAY;
+        }
+        remaining[top]--;
+        if (objects[top]) {
+            name = readKey();
+            if (path != null) {
+                path.entry(name);
+            }
+            expectValue = true;
+            return Token.FIELD_NAME;
+        }
+        if (path != null) {
+            path.entry(null);
+        }
+        return readValue();
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Object value() {
+        return value;
+    }
+
+    private Token readValue() throws IOException, InvalidConfigurationException {
+        final byte tag = readByte();
+        switch (tag) {
+            case OBJECT:
+                push(true, readCount());
+                return Token.START_OBJECT;
+            case ARRAY:
+                push(false, readCount());
+                return Token.START_ARRAY;
+            case NULL:
+                value = null;
+                break;
+            case FALSE:
+                value = Boolean.FALSE;
+                break;
+            case TRUE:
+                value = Boolean.TRUE;
+                break;
+            case INT:
+                final int zigzag = (int) readVarLong();
+                value = (zigzag >>> 1) ^ -(zigzag & 1);
+                break;
+            case LONG:
+                final long zigzagLong = readVarLong();
+                value = (zigzagLong >>> 1) ^ -(zigzagLong & 1);
+                break;
+            case BIG_INTEGER:
+                value = new BigInteger(readBytes(readLength("Number")));
+                break;
+            case DOUBLE:
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits = (bits << 8) | (readByte() & 0xFF);
+                }
+                value = Double.longBitsToDouble(bits);
+                break;
+            case STRING:
+                final String string = readText();
+                if (string.length() <= MAX_INTERNED_LENGTH) {
+                    dictionary.add(string);
+                }
+                value = string;
+                break;
+            case STRING_REF:
+                value = lookup(readCount());
+                break;
+            default:
+                throw error("Unknown tag " + tag);
+        }
+        finished = depth == 0;
+        return Token.VALUE;
+    }
+
+    private String readKey() throws IOException, InvalidConfigurationException {
+        final int index = readCount();
+        if (index > 0) {
+            return lookup(index - 1);
+        }
+        final String key = readText();
+        dictionary.add(key);
+        return key;
+    }
+
+    private String lookup(final int index) throws InvalidConfigurationException {
+        if (index >= dictionary.size()) {
+            throw error("Unknown string reference " + index);
+        }
+        return dictionary.get(index);
+    }
+
+    private void push(final boolean object, final int count) throws InvalidConfigurationException {
+        if (path != null) {
+            if (depth >= maxDepth) {
+                throw limitExceeded("Nesting deeper than " + maxDepth + " levels");
+            }
+            if (count > maxEntries) {
+                throw limitExceeded("More than " + maxEntries + " entries in an " + (object ? "object" : "array"));
+            }
+            path.push(object);
+        }
+        if (depth == remaining.length) {
+            final int[] grownRemaining = new int[depth * 2];
+            System.arraycopy(remaining, 0, grownRemaining, 0, depth);
+            remaining = grownRemaining;
+            final boolean[] grownObjects = new boolean[depth * 2];
+            System.arraycopy(objects, 0, grownObjects, 0, depth);
+            objects = grownObjects;
+        }
+        remaining[depth] = count;
+        objects[depth] = object;
+        depth++;
+    }
+
+    private String readText() throws IOException, InvalidConfigurationException {
+        final int length = readLength("String");
+        final String text;
+        if (length <= limit - pos) {
+            text = new String(buffer, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+        } else {
+            text = new String(readBytes(length), StandardCharsets.UTF_8);
+        }
+        // Each distinct string is only decoded once per document anyway, but may repeat across documents.
+        return pool != null ? pool.intern(text) : text;
+    }
+
+    private byte[] readBytes(final int length) throws IOException, InvalidConfigurationException {
+        final byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            if (pos == limit && !fill()) {
+                throw error("Unexpected end of input");
+            }
+            final int chunk = Math.min(length - read, limit - pos);
+            System.arraycopy(buffer, pos, bytes, read, chunk);
+            pos += chunk;
+            read += chunk;
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads the length of a string or number, checking it before anything of that length is allocated.
+     */
+    private int readLength(@NotNull final String what) throws IOException, InvalidConfigurationException {
+        final int length = readCount();
+        if (length > maxStringLength) {
+            throw limitExceeded(what + " longer than " + maxStringLength + " bytes");
+        }
+        return length;
+    }
+
+    private int readCount() throws IOException, InvalidConfigurationException {
+        final long count = readVarLong();
+        if (count > Integer.MAX_VALUE) {
+            throw error("Invalid length");
+        }
+        return (int) count;
+    }
+
+    private long readVarLong() throws IOException, InvalidConfigurationException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw error("Malformed varint");
+    }
+
+    private byte readByte() throws IOException, InvalidConfigurationException {
+        if (pos == limit && !fill()) {
+            throw error("Unexpected end of input");
+        }
+        return buffer[pos++];
+    }
+
+    private boolean fill() throws IOException, InvalidConfigurationException {
+        consumed += limit;
+        pos = 0;
+        limit = Math.max(0, in.read(buffer, 0, buffer.length));
+        if (consumed + limit > maxSize) {
+            throw limitExceeded("Document larger than " + maxSize + " bytes");
+        }
+        return limit > 0;
+    }
+
+    private InvalidConfigurationException error(@NotNull final String message) {
+        return error(message, "");
+    }
+
+    private InvalidConfigurationException limitExceeded(@NotNull final String message) {
+        return error(message, path.describe() + ", ");
+    }
+
+    private InvalidConfigurationException error(@NotNull final String message, @NotNull final String where) {
+        return new InvalidConfigurationException("Invalid binary json detected: " + message + " at " + where + "byte "
+                + (consumed + pos) + ".");
+    }
+}
@@ -0,0 +1,230 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.dumptruckman.bukkit.configuration.json.JsonBinaryFormat.*;
+
+/**
+ * Writes a tree produced by {@link SerializationHelper#serialize(Object)} in the binary encoding described by
+ * {@link JsonBinaryFormat}.
+ *
+ * Values are encoded the way they would come back from the json text of the same tree, so loading either gives the
+ * same configuration: integral numbers take the smallest of Integer, Long and BigInteger they fit in, floats become
+ * doubles, NaN and infinities become null and anything unknown becomes its string form.
+ */
+final class JsonBinaryWriter {
+
+    @NotNull
+    private final OutputStream out;
+    private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+    private final byte[] buffer = new byte[8192];
+    private int pos;
+
+    JsonBinaryWriter(@NotNull final OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the header and the tree, and hands everything buffered to the underlying stream.
+     */
+    void write(@NotNull final Map<?, ?> root) throws IOException {
+        for (final byte b : HEADER) {
+            write(b);
+        }
+        writeValue(root);
+        out.write(buffer, 0, pos);
+        pos = 0;
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value instanceof Object[]) {
+            value = Arrays.asList((Object[]) value);
+        }
+        if (value == null) {
+            write(NULL);
+        } else if (value instanceof String) {
+            writeString((String) value);
+        } else if (value instanceof Boolean) {
+            write((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            writeInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            writeLong((Long) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            final double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                write(NULL);
+            } else {
+                // A float is written as text by its own toString, which is what its json reads back as.
+                writeDouble(value instanceof Float ? Double.parseDouble(value.toString()) : d);
+            }
+        } else if (value instanceof BigInteger) {
+            writeBigInteger((BigInteger) value);
+        } else if (value instanceof Number) {
+            writeNumberText(value.toString());
+        } else if (value instanceof Map) {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            write(OBJECT);
+            writeVarInt(map.size());
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                writeKey(entry.getKey().toString());
+                writeValue(entry.getValue());
+            }
+        } else if (value instanceof Collection) {
+            final Collection<?> collection = (Collection<?>) value;
+            write(ARRAY);
+            writeVarInt(collection.size());
+            for (final Object element : collection) {
+                writeValue(element);
+            }
+        } else if (value instanceof Iterable) {
+            final Collection<Object> elements = new ArrayList<Object>();
+            for (final Object element : (Iterable<?>) value) {
+                elements.add(element);
+            }
+            writeValue(elements);
+        } else if (value.getClass().isArray()) {
+            final int length = Array.getLength(value);
+            write(ARRAY);
+            writeVarInt(length);
+            for (int i = 0; i < length; i++) {
+                writeValue(Array.get(value, i));
+            }
+        } else {
+            writeString(value.toString());
+        }
+    }
+
+    private void writeInt(final int value) throws IOException {
+        write(INT);
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    private void writeLong(final long value) throws IOException {
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            writeInt((int) value);
+            return;
+        }
+        write(LONG);
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private void writeDouble(final double value) throws IOException {
+        write(DOUBLE);
+        final long bits = Double.doubleToLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            write((byte) (bits >>> shift));
+        }
+    }
+
+    private void writeBigInteger(@NotNull final BigInteger value) throws IOException {
+        if (value.bitLength() < 64) {
+            writeLong(value.longValue());
+            return;
+        }
+        final byte[] bytes = value.toByteArray();
+        write(BIG_INTEGER);
+        writeVarInt(bytes.length);
+        writeBytes(bytes);
+    }
+
+    /**
+     * Writes a number of an unknown type as whatever its text would be read back as.
+     */
+    private void writeNumberText(@NotNull final String text) throws IOException {
+        final Object parsed;
+        try {
+            final JsonTokenizer tokenizer = new JsonTokenizer(text);
+            tokenizer.next();
+            parsed = tokenizer.value();
+        } catch (InvalidConfigurationException e) {
+            writeString(text);
+            return;
+        }
+        writeValue(parsed);
+    }
+
+    private void writeString(@NotNull final String value) throws IOException {
+        final Integer index = value.length() <= MAX_INTERNED_LENGTH ? dictionary.get(value) : null;
+        if (index != null) {
+            write(STRING_REF);
+            writeVarInt(index);
+            return;
+        }
+        write(STRING);
+        writeText(value);
+        if (value.length() <= MAX_INTERNED_LENGTH) {
+            dictionary.put(value, dictionary.size());
+        }
+    }
+
+    private void writeKey(@NotNull final String key) throws IOException {
+        final Integer index = dictionary.get(key);
+        if (index != null) {
+            writeVarInt(index + 1);
+            return;
+        }
+        writeVarInt(0);
+        writeText(key);
+        dictionary.put(key, dictionary.size());
+    }
+
+    private void writeText(@NotNull final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        writeBytes(bytes);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            write((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        write((byte) value);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            write((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        write((byte) value);
+    }
+
+    private void writeBytes(@NotNull final byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - pos) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    private void write(final byte b) throws IOException {
+        if (pos == buffer.length) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+        }
+        buffer[pos++] = b;
+    }
+}
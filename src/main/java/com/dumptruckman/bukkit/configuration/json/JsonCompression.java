@@ -0,0 +1,94 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression of saved files, either json text or the compact binary encoding.
+ *
+ * Compressed files are recognized by the gzip magic bytes when loaded, so they load whatever their name, and files
+ * are compressed when saved if {@link JsonConfigurationOptions#compressed()} is enabled or their name ends in
+ * {@link #EXTENSION}.  Both directions stream, so neither the compressed nor the decompressed contents are ever held
+ * in memory as a whole.
+ */
+final class JsonCompression {
+
+    /**
+     * The level meaning a file is not compressed.
+     */
+    static final int NONE = -2;
+
+    static final String EXTENSION = ".gz";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private JsonCompression() {
+        throw new AssertionError();
+    }
+
+    /**
+     * @param file the file being saved, if any.
+     * @return the level the file is to be compressed with, or {@link #NONE}.
+     */
+    static int level(@NotNull final JsonConfigurationOptions options, final File file) {
+        if (options.compressed() || (file != null && file.getName().toLowerCase().endsWith(EXTENSION))) {
+            return options.compressionLevel();
+        }
+        return NONE;
+    }
+
+    /**
+     * Wraps a stream so what is written to it is compressed, unless the level is {@link #NONE}.  Closing the
+     * returned stream finishes the compressed data and closes the given stream.
+     */
+    @NotNull
+    static OutputStream compress(@NotNull final OutputStream output, final int level) throws IOException {
+        if (level == NONE) {
+            return output;
+        }
+        return new GZIPOutputStream(output, BUFFER_SIZE) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    /**
+     * Wraps a stream so it is decompressed if it starts with the gzip magic bytes.
+     *
+     * @param input a stream supporting {@link InputStream#mark(int)}.
+     * @return the given stream, or a stream decompressing it which also supports {@link InputStream#mark(int)}.
+     */
+    @NotNull
+    static InputStream decompress(@NotNull final InputStream input) throws IOException {
+        if (!isCompressed(input)) {
+            return input;
+        }
+        return new BufferedInputStream(new GZIPInputStream(input, BUFFER_SIZE), BUFFER_SIZE);
+    }
+
+    /**
+     * Checks whether a stream starts with the gzip magic bytes without consuming any of it.
+     *
+     * @param input a stream supporting {@link InputStream#mark(int)}.
+     */
+    static boolean isCompressed(@NotNull final InputStream input) throws IOException {
+        input.mark(2);
+        try {
+            return input.read() == (GZIPInputStream.GZIP_MAGIC & 0xFF)
+                    && input.read() == (GZIPInputStream.GZIP_MAGIC >> 8);
+        } finally {
+            input.reset();
+        }
+    }
+}
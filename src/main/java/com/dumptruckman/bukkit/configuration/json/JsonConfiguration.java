@@ -4,22 +4,33 @@
 package com.dumptruckman.bukkit.configuration.json;
 
 import com.dumptruckman.bukkit.configuration.SerializableSet;
+import com.dumptruckman.bukkit.configuration.util.ConfigurationMetrics;
 import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
 import com.google.common.base.Charsets;
-import net.minidev.json.JSONValue;
-import net.minidev.json.parser.JSONParser;
-import net.minidev.json.parser.ParseException;
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.io.Files;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.serialization.ConfigurationSerialization;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
 import java.util.*;
@@ -37,10 +48,21 @@ public class JsonConfiguration extends FileConfiguration {
 
     private static final Logger LOG = Logger.getLogger(JsonConfiguration.class.getName());
 
+    private PathIndex pathIndex;
+    private int quiet;
+    private long modifications;
+
     @NotNull
     @Override
     public String saveToString() {
-        String dump = JSONValue.toJSONString(SerializationHelper.serialize(getValues(false)));
+        final StringWriter writer = new StringWriter();
+        try {
+            save(writer);
+        } catch (IOException e) {
+            // StringWriter does not throw.
+            throw new IllegalStateException(e);
+        }
+        String dump = writer.toString();
 
         if (dump.equals(BLANK_CONFIG)) {
             dump = "";
@@ -49,45 +71,403 @@ public class JsonConfiguration extends FileConfiguration {
         return dump;
     }
 
+    /**
+     * Saves this configuration to a json formatted file using UTF-8 encoding, or in the compact binary encoding if
+     * {@link JsonConfigurationOptions#binary()} is enabled.  Either is gzip compressed if
+     * {@link JsonConfigurationOptions#compressed()} is enabled or the name of the file ends in .gz.
+     *
+     * The json is written to the file as it is produced, so the document is never held in memory as a String.
+     *
+     * @param file The file to save the configuration to.
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public void save(@NotNull final File file) throws IOException {
+        Files.createParentDirs(file);
+
+        final long start = System.nanoTime();
+        final CountingOutputStream output = new CountingOutputStream(new FileOutputStream(file));
+        final OutputStream compressed;
+        try {
+            compressed = JsonCompression.compress(output, JsonCompression.level(options(), file));
+        } catch (IOException e) {
+            output.close();
+            throw e;
+        }
+        if (options().binary()) {
+            try (OutputStream out = compressed) {
+                writeBinary(out);
+            }
+        } else {
+            try (Writer writer = new OutputStreamWriter(compressed, Charsets.UTF_8)) {
+                write(writer);
+            }
+        }
+        reportSave(file, output.getCount(), start);
+    }
+
+    /**
+     * Writes this configuration as json to the given writer.
+     *
+     * The writer is flushed but not closed.
+     *
+     * @param writer The writer to write the configuration to.
+     * @throws IOException If the writer throws.
+     */
+    public void save(@NotNull final Writer writer) throws IOException {
+        final long start = System.nanoTime();
+        final long written = write(writer);
+        writer.flush();
+        reportSave(null, written, start);
+    }
+
+    /**
+     * Writes this configuration in the compact binary encoding to the given stream.
+     *
+     * The stream is flushed but not closed.
+     *
+     * @param output The stream to write the configuration to.
+     * @throws IOException If the stream throws.
+     */
+    public void saveBinary(@NotNull final OutputStream output) throws IOException {
+        final long start = System.nanoTime();
+        final CountingOutputStream counting = new CountingOutputStream(output);
+        writeBinary(counting);
+        counting.flush();
+        reportSave(null, counting.getCount(), start);
+    }
+
+    /**
+     * Writes this configuration as json through the backend, without flushing the writer.
+     *
+     * @return the number of characters written.
+     */
+    long write(@NotNull final Writer writer) throws IOException {
+        return options().backend().save(this, writer, options().metrics());
+    }
+
+    private void writeBinary(@NotNull final OutputStream output) throws IOException {
+        new JsonBinaryWriter(output).write((Map<?, ?>) serializeSnapshot());
+    }
+
+    /**
+     * @return the values of this configuration as produced by {@link SerializationHelper#serialize(Object)}.
+     */
+    Object serializeSnapshot() {
+        return SerializationHelper.serialize(this, options().metrics());
+    }
+
     @Override
     public void loadFromString(@NotNull final String contents) throws InvalidConfigurationException {
         if (contents.isEmpty()) {
             return;
         }
 
-        Map<?, ?> input;
+        final long start = System.nanoTime();
+        reportLoad(null, contents.length(), read(contents), start);
+    }
+
+    /**
+     * Loads this configuration from a json formatted file using UTF-8 encoding, or from a file in the compact binary
+     * encoding, which is recognized by its header.  Either may be gzip compressed, which is recognized by its first
+     * bytes.
+     *
+     * The file is decompressed and parsed as it is read, so its contents are never held in memory as a String.
+     *
+     * @param file The file to load the configuration from.
+     * @throws FileNotFoundException If the file does not exist.
+     * @throws IOException If the file cannot be read.
+     * @throws InvalidConfigurationException If the file is not valid json.
+     */
+    @Override
+    public void load(@NotNull final File file) throws IOException, InvalidConfigurationException {
+        final long start = System.nanoTime();
+        final CountingInputStream counting = new CountingInputStream(new FileInputStream(file));
+        final InputStream input;
+        final boolean binary;
+        final InputStream buffered = new BufferedInputStream(counting);
+        try {
+            input = JsonCompression.decompress(buffered);
+            binary = JsonBinaryFormat.hasHeader(input);
+        } catch (IOException e) {
+            buffered.close();
+            throw e;
+        }
+        final long values;
+        if (binary) {
+            values = readBinary(input);
+        } else {
+            values = read(new InputStreamReader(input, Charsets.UTF_8));
+        }
+        reportLoad(file, counting.getCount(), values, start);
+    }
+
+    /**
+     * Loads this configuration from the compact binary encoding read from the given stream.
+     *
+     * The stream is closed afterwards.
+     *
+     * @param input The stream to load the configuration from.
+     * @throws IOException If the stream throws.
+     * @throws InvalidConfigurationException If the stream does not contain a valid binary encoding.
+     */
+    public void loadBinary(@NotNull final InputStream input) throws IOException, InvalidConfigurationException {
+        final long start = System.nanoTime();
+        final CountingInputStream counting = new CountingInputStream(input);
+        reportLoad(null, counting.getCount(), readBinary(counting), start);
+    }
+
+    /**
+     * Loads this configuration from json read from the given reader.
+     *
+     * The json is parsed as it is read, so it is never held in memory as a String.  The reader is closed afterwards.
+     *
+     * @param reader The reader to load the configuration from.
+     * @throws IOException If the reader throws.
+     * @throws InvalidConfigurationException If the reader does not contain valid json.
+     */
+    @Override
+    public void load(@NotNull final Reader reader) throws IOException, InvalidConfigurationException {
+        final long start = System.nanoTime();
+        final CountingReader counting = new CountingReader(reader);
+        final long values = read(counting);
+        reportLoad(null, counting.getCount(), values, start);
+    }
+
+    /**
+     * Loads json text into this configuration through the backend, without reporting the load to the metrics.
+     *
+     * @return the number of values and sections created.
+     */
+    long read(@NotNull final String contents) throws InvalidConfigurationException {
+        discardPathIndex();
+        beginQuiet();
+        final long created;
         try {
-            input = (Map<?, ?>) new JSONParser(JSONParser.USE_INTEGER_STORAGE).parse(contents);
-        } catch (ParseException e) {
-            throw new InvalidConfigurationException("Invalid JSON detected.", e);
-        } catch (ClassCastException e) {
-            throw new InvalidConfigurationException("Top level is not a Map.", e);
+            created = options().backend().load(contents, this);
+        } finally {
+            endQuiet();
         }
+        loaded();
+        return created;
+    }
 
-        if (input != null) {
-            convertMapsToSections(input, this);
-        } else {
-            throw new InvalidConfigurationException("An unknown error occurred while attempting to parse the json.");
+    /**
+     * Loads json read from the given reader into this configuration through the backend and closes it, without
+     * reporting the load to the metrics.
+     *
+     * @return the number of values and sections created.
+     */
+    long read(@NotNull final Reader reader) throws IOException, InvalidConfigurationException {
+        discardPathIndex();
+        beginQuiet();
+        final long created;
+        try (Reader input = reader) {
+            created = options().backend().load(input, this);
+        } finally {
+            endQuiet();
+        }
+        loaded();
+        return created;
+    }
+
+    /**
+     * Loads the binary encoding read from the given stream into this configuration and closes it, without reporting
+     * the load to the metrics.
+     *
+     * @return the number of values and sections created.
+     */
+    long readBinary(@NotNull final InputStream input) throws IOException, InvalidConfigurationException {
+        discardPathIndex();
+        final JsonSectionLoader loader = new JsonSectionLoader(this);
+        beginQuiet();
+        try (InputStream in = input) {
+            loader.load(new JsonBinaryReader(in, options().stringPool(), options().limits()));
+        } finally {
+            endQuiet();
         }
+        loaded();
+        return loader.getCreated();
     }
 
-    private void convertMapsToSections(@NotNull Map<?, ?> input, @NotNull final ConfigurationSection section) {
-        final Object result = SerializationHelper.deserialize(input);
-        if (result instanceof Map) {
-            input = (Map<?, ?>) result;
-            for (Map.Entry<?, ?> entry : input.entrySet()) {
-                String key = entry.getKey().toString();
-                Object value = entry.getValue();
+    /**
+     * Reports a finished load to the metrics, if any.
+     */
+    void reportLoad(final File file, final long size, final long values, final long start) {
+        final ConfigurationMetrics metrics = options().metrics();
+        if (metrics != null) {
+            metrics.loaded(file, size, values, System.nanoTime() - start);
+        }
+    }
 
-                if (value instanceof Map) {
-                    convertMapsToSections((Map<?, ?>) value, section.createSection(key));
-                } else {
-                    section.set(key, value);
-                }
+    /**
+     * Reports a finished save to the metrics, if any.
+     */
+    void reportSave(final File file, final long size, final long start) {
+        final ConfigurationMetrics metrics = options().metrics();
+        if (metrics != null) {
+            metrics.saved(file, size, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Object get(final String path, final Object def) {
+        if (path != null && options().pathIndex()) {
+            final Object indexed = pathIndex().get(path);
+            if (indexed != null) {
+                return indexed;
             }
-        } else {
-            section.set("", result);
         }
+        final Object value = super.get(path, def);
+        if (value instanceof LazyValue) {
+            ((LazyValue) value).materialize(this, path);
+            return super.get(path, def);
+        }
+        return value;
+    }
+
+    @Override
+    public ConfigurationSection createSection(final String path) {
+        if (path == null || path.isEmpty() || path.indexOf(options().pathSeparator()) != -1) {
+            return super.createSection(path);
+        }
+        final ConfigurationSection section = newSection(this, path);
+        final Object old = map.put(path, section);
+        sectionChanged(this, path, old, section);
+        return section;
+    }
+
+    @Override
+    public void set(final String path, final Object value) {
+        final Object old = map.get(path);
+        super.set(path, value);
+        sectionChanged(this, path, old, value);
+    }
+
+    /**
+     * Creates the object for a section of this configuration, without adding it anywhere.
+     */
+    @NotNull
+    JsonSection newSection(@NotNull final ConfigurationSection parent, @NotNull final String key) {
+        return new JsonSection(parent, key);
+    }
+
+    /**
+     * Builds the path index if it is enabled, once a load has finished.
+     */
+    void loaded() {
+        modifications++;
+        if (options().pathIndex()) {
+            pathIndex();
+        }
+    }
+
+    /**
+     * Drops the path index, to be built again the next time it is needed.
+     */
+    void discardPathIndex() {
+        pathIndex = null;
+    }
+
+    @NotNull
+    private PathIndex pathIndex() {
+        final char separator = options().pathSeparator();
+        if (pathIndex == null || pathIndex.separator() != separator) {
+            pathIndex = new PathIndex(separator);
+            pathIndex.addAll("", this, map);
+        }
+        return pathIndex;
+    }
+
+    /**
+     * Keeps the path index in sync and records the change after something was set in a section of this
+     * configuration.
+     *
+     * @param section the section the path was set in.
+     * @param path the path relative to the section.
+     * @param old the value the path had in the section map before, if it is a single key.
+     * @param value the value set.
+     */
+    void sectionChanged(@NotNull final ConfigurationSection section, final String path, final Object old,
+                        final Object value) {
+        if (quiet == 0) {
+            modifications++;
+        }
+        final char separator = options().pathSeparator();
+        // Longer paths end up setting their last key in the section holding it, which gets here on its own.
+        if (path == null || path.isEmpty() || path.indexOf(separator) != -1) {
+            return;
+        }
+        final boolean index = pathIndex != null && pathIndex.separator() == separator;
+        final boolean record = quiet == 0 && recordsChanges();
+        if (!index && !record) {
+            return;
+        }
+        // A section that was removed keeps its parent, but what is set in it is no longer part of this configuration.
+        for (ConfigurationSection child = section; child != this; child = child.getParent()) {
+            final ConfigurationSection parent = child.getParent();
+            final Object held = parent == this ? map.get(child.getName())
+                    : parent instanceof JsonSection ? ((JsonSection) parent).getRaw(child.getName()) : null;
+            if (held != child) {
+                return;
+            }
+        }
+        if (index) {
+            pathIndex.replaced(section == this ? path : createPath(section, path), section, path, old, value);
+        }
+        if (record) {
+            recordChange(section, path, value);
+        }
+    }
+
+    /**
+     * @return whether {@link #recordChange(ConfigurationSection, String, Object)} wants to hear about changes.
+     */
+    boolean recordsChanges() {
+        return false;
+    }
+
+    /**
+     * Called for every key set in a section of this configuration, other than by loading or by materializing lazily
+     * loaded values, if {@link #recordsChanges()}.
+     *
+     * @param section the section the key was set in.
+     * @param key the key, which never contains the path separator.
+     * @param value the value set, or null if the key was removed.
+     */
+    void recordChange(@NotNull final ConfigurationSection section, @NotNull final String key, final Object value) {
+    }
+
+    /**
+     * @return a count that goes up whenever a value of this configuration is set or the configuration is loaded.
+     */
+    long modifications() {
+        return modifications;
+    }
+
+    /**
+     * Starts a change that is not to be recorded, such as loading.  Every call must be matched by {@link #endQuiet()}.
+     */
+    void beginQuiet() {
+        quiet++;
+    }
+
+    void endQuiet() {
+        quiet--;
+    }
+
+    @Override
+    public Set<String> getKeys(final boolean deep) {
+        if (deep) {
+            LazyValue.materializeAll(this, map, true);
+        }
+        return super.getKeys(deep);
+    }
+
+    @Override
+    public Map<String, Object> getValues(final boolean deep) {
+        LazyValue.materializeAll(this, map, deep);
+        return super.getValues(deep);
     }
 
     @Override
@@ -96,6 +476,41 @@ public class JsonConfiguration extends FileConfiguration {
         return "";
     }
 
+    /**
+     * Binds a section to an interface or a class, giving typed access to its values.
+     *
+     * Every value of the section that the type declares is read, converted and checked once, here, so a key holding
+     * the wrong type fails the bind instead of a later read.  Keys are named by {@link ConfigurationKey} or else by
+     * the accessor: the field name, or the method name without a get or is prefix.  Numbers convert to any numeric
+     * type they fit, enums are read from their name, a section read as a Map gives its values, and a section read
+     * as any other non JDK type is bound to that type in turn.  Missing values are null, except for primitives,
+     * which must be present.  Element types of lists and maps are not checked.
+     *
+     * An interface is bound to a live view: each method without parameters is an accessor, and its values are read
+     * again the first time one is used after the configuration changed.  While nothing changes, a read skips the
+     * section but still goes through the proxy's reflective dispatch, finds the accessor in a hash map and boxes
+     * primitives.  If the section is removed or a value no longer fits, that read throws an
+     * {@link IllegalStateException}.  Values changed in place, such as a list being added to, do not count as
+     * changes.  Default methods are not supported.
+     *
+     * A class is bound to a new instance with its fields set to the current values, which is not updated afterwards.
+     * Reading it is a plain field read, so bind a class for values read on hot paths and bind again after a reload.
+     * It needs a constructor without parameters, which may be private, and every non static, non transient field is
+     * bound.  That includes final fields, unless they are initialized with a constant, which the compiler copies
+     * into the code reading them.
+     *
+     * @param path The path of the section to bind, or an empty String for the whole configuration.
+     * @param type The interface or class to bind the section to.
+     * @param <T> The type bound to.
+     * @return The bound view or instance.
+     * @throws IllegalArgumentException If there is no section at the path, the type cannot be bound, or a value does
+     *                                  not fit its accessor.
+     */
+    @NotNull
+    public <T> T bind(@NotNull final String path, @NotNull final Class<T> type) {
+        return SectionBinder.bind(this, path, type);
+    }
+
     @Override
     public JsonConfigurationOptions options() {
         if (options == null) {
@@ -105,19 +520,29 @@ public class JsonConfiguration extends FileConfiguration {
         return (JsonConfigurationOptions) options;
     }
 
-    private static JsonConfiguration loadConfiguration(@NotNull final JsonConfiguration config, @NotNull final File file) {
+    static JsonConfiguration loadConfiguration(@NotNull final JsonConfiguration config, @NotNull final File file) {
         try {
             config.load(file);
         } catch (FileNotFoundException ex) {
             LOG.log(Level.SEVERE, "Cannot find file " + file, ex);
+            config.reportSwallowed(ex);
         } catch (IOException ex) {
             LOG.log(Level.SEVERE, "Cannot load " + file, ex);
+            config.reportSwallowed(ex);
         } catch (InvalidConfigurationException ex) {
             LOG.log(Level.SEVERE, "Cannot load " + file , ex);
+            config.reportSwallowed(ex);
         }
         return config;
     }
 
+    private void reportSwallowed(@NotNull final Exception e) {
+        final ConfigurationMetrics metrics = options().metrics();
+        if (metrics != null) {
+            metrics.swallowed("load", e);
+        }
+    }
+
     /**
      * Loads up a configuration from a json formatted file.
      *
@@ -132,6 +557,18 @@ public class JsonConfiguration extends FileConfiguration {
     }
 
     public JsonConfiguration() {
-        ConfigurationSerialization.registerClass(SerializableSet.class);
+        registerSerializables();
+    }
+
+    /**
+     * Registers the classes this library serializes, unless they already are.  Registering writes to a map that is
+     * not safe to change from several threads, so this is called before configurations are created on several
+     * threads at once.
+     */
+    static void registerSerializables() {
+        if (ConfigurationSerialization.getClassByAlias(ConfigurationSerialization.getAlias(SerializableSet.class))
+                != SerializableSet.class) {
+            ConfigurationSerialization.registerClass(SerializableSet.class);
+        }
     }
 }
@@ -3,14 +3,31 @@
  * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
 package com.dumptruckman.bukkit.configuration.json;
 
+import com.dumptruckman.bukkit.configuration.util.ConfigurationMetrics;
 import org.bukkit.configuration.file.FileConfigurationOptions;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.zip.Deflater;
+
 /**
  * Mandatory configuration options class for JsonConfiguration.
  */
 public class JsonConfigurationOptions extends FileConfigurationOptions {
 
+    private boolean lazyLoading = false;
+    private boolean binary = false;
+    private boolean compressed = false;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private StringPool stringPool = null;
+    private boolean pathIndex = false;
+    private boolean incrementalSaving = false;
+    private ConfigurationMetrics metrics = null;
+    private JsonBackend backend = JsonBackend.STREAMING;
+    private long maxSize = Long.MAX_VALUE;
+    private int maxDepth = Integer.MAX_VALUE;
+    private int maxEntries = Integer.MAX_VALUE;
+    private int maxStringLength = Integer.MAX_VALUE;
+
     protected JsonConfigurationOptions(@NotNull final JsonConfiguration configuration) {
         super(configuration);
     }
@@ -43,4 +60,341 @@ public class JsonConfigurationOptions extends FileConfigurationOptions {
         super.copyHeader(value);
         return this;
     }
+
+    /**
+     * Gets whether nested objects and arrays are left unparsed when loading until they are first accessed.
+     *
+     * @return Whether lazy loading is enabled.
+     */
+    public boolean lazyLoading() {
+        return lazyLoading;
+    }
+
+    /**
+     * Sets whether nested objects and arrays are left unparsed when loading until they are first accessed.
+     *
+     * The json is still validated completely while loading, but only the top level keys are turned into values.
+     * Everything below them is kept as json text and parsed one level at a time as it is accessed, which makes
+     * loading large files of which only a few sections are read much cheaper.  Because reading may then modify the
+     * configuration, a lazily loaded configuration must not be read from several threads at once.
+     *
+     * @param value Whether lazy loading is enabled.
+     * @return This object, for chaining.
+     */
+    public JsonConfigurationOptions lazyLoading(final boolean value) {
+        lazyLoading = value;
+        return this;
+    }
+
+    /**
+     * Gets whether files are saved in the compact binary encoding instead of as json text.
+     *
+     * @return Whether binary saving is enabled.
+     */
+    public boolean binary() {
+        return binary;
+    }
+
+    /**
+     * Sets whether files are saved in the compact binary encoding instead of as json text.
+     *
+     * The encoding stores the same values as the json would, with each distinct key and short string stored only
+     * once, and is faster to read and write.  Loading a file detects the encoding by its header regardless of this
+     * option, so it can be switched at any time.  {@link JsonConfiguration#saveToString()} always produces json
+     * text.
+     *
+     * @param value Whether binary saving is enabled.
+     * @return This object, for chaining.
+     */
+    public JsonConfigurationOptions binary(final boolean value) {
+        binary = value;
+        return this;
+    }
+
+    /**
+     * Gets whether files are saved gzip compressed.
+     *
+     * @return Whether compressed saving is enabled.
+     */
+    public boolean compressed() {
+        return compressed;
+    }
+
+    /**
+     * Sets whether files are saved gzip compressed.
+     *
+     * Files whose name ends in .gz are compressed regardless of this option.  Loading a file detects compression by
+     * its first bytes, so it can be switched at any time.  Compression applies to json text and to the binary
+     * encoding alike, but not to saving to a Writer or a stream.
+     *
+     * @param value Whether compressed saving is enabled.
+     * @return This object, for chaining.
+     */
+    public JsonConfigurationOptions compressed(final boolean value) {
+        compressed = value;
+        return this;
+    }
+
+    /**
+     * Gets the level files are compressed with.
+     *
+     * @return The level, from 0 to 9, or -1 for the default of the compressor.
+     */
+    public int compressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Sets the level files are compressed with, trading the size of the file for the time it takes to save it.
+     *
+     * Player data with serialized item meta typically shrinks to about a third at level 1, with higher levels
+     * saving a few more percent at several times the cost.  Decompressing is about as fast whatever the level.
+     *
+     * @param value The level, from 0 for no compression to 9 for the smallest files, or -1 for the default of the
+     *              compressor.
+     * @return This object, for chaining.
+     */
+    public JsonConfigurationOptions compressionLevel(final int value) {
+        if (value < Deflater.DEFAULT_COMPRESSION || value > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be from -1 to 9: " + value);
+        }
+        compressionLevel = value;
+        return this;
+    }
+
+    /**
+     * Gets the pool keys and short string values are taken from while loading.
+     *
+     * @return The pool in use, or null if every string read is created anew.
+     */
+    public StringPool stringPool() {
+        return stringPool;
+    }
+
+    /**
+     * Sets the pool keys and short string values are taken from while loading.
+     *
+     * Files with many repeated keys and values, such as serialized items, then keep each of them in memory once.
+     * Use {@link StringPool#shared()} or one pool for many configurations to also share them between files.
+     *
+     * @param value The pool to use, or null to create every string read anew.
+     * @return This object, for chaining.
+     */
+    public JsonConfigurationOptions stringPool(final StringPool value) {
+        stringPool = value;
+        return this;
+    }
+
+    /**
+     * Gets whether values are also kept by their full path so that they can be looked up without walking sections.
+     *
+     * @return Whether the path index is enabled.
+     */
+    public boolean pathIndex() {
+        return pathIndex;
+    }
+
+    /**
+     * Sets whether values are also kept by their full path so that they can be looked up without walking sections.
+     *
+     * {@link JsonConfiguration#get(String, Object)} and everything built on it then looks a path up with a single
+     * hash lookup of the path as given, instead of splitting it into keys and looking up each of them in turn.  The
+     * index is built when the configuration is loaded and kept up to date by every change, which makes setting
+     * values a little slower and takes an extra map entry per value.  Only lookups on the configuration itself use
+     * the index, not those on its sections.
+     *
+     * @param value Whether the path index is enabled.
+     * @return This object, for chaining.
+     */
+    public JsonConfigurationOptions pathIndex(final boolean value) {
+        pathIndex = value;
+        if (!value) {
+            configuration().discardPathIndex();
+        }
+        return this;
+    }
+
+    /**
+     * Gets whether sections keep the json they were saved as, so that saving again only writes what changed.
+     *
+     * @return Whether incremental saving is enabled.
+     */
+    public boolean incrementalSaving() {
+        return incrementalSaving;
+    }
+
+    /**
+     * Sets whether sections keep the json they were saved as, so that saving again only writes what changed.
+     *
+     * Each section whose values cannot change without it knowing keeps its json after a save, and the next save
+     * copies that json instead of writing the section again, for as long as nothing in it is set.  Sections holding
+     * lists, maps or serializable objects, which can be changed in place, are always written again, as are the
+     * sections containing them.  The kept json takes about as much memory as the saved document, for as long as the
+     * configuration is kept, so this is worth it for large configurations that are saved often but rarely change.
+     * Kept json is not used while defaults are copied.
+     *
+     * @param value Whether incremental saving is enabled.
+     * @return This object, for chaining.
+     */
+    public JsonConfigurationOptions incrementalSaving(final boolean value) {
+        incrementalSaving = value;
+        return this;
+    }
+
+    /**
+     * Gets the listener that loads, saves and deserializations of the configuration are reported to.
+     *
+     * @return The listener in use, or null if nothing is measured.
+     */
+    public ConfigurationMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the listener that loads, saves and deserializations of the configuration are reported to, along with the
+     * errors that are logged and otherwise ignored while doing them.
+     *
+     * Nothing is measured without a listener.  {@link com.dumptruckman.bukkit.configuration.util.InMemoryConfigurationMetrics}
+     * keeps totals that can be shared by many configurations and published over JMX.
+     *
+     * @param value The listener to use, or null to measure nothing.
+     * @return This object, for chaining.
+     */
+    public JsonConfigurationOptions metrics(final ConfigurationMetrics value) {
+        metrics = value;
+        return this;
+    }
+
+    /**
+     * Gets the backend that parses and generates the json text.
+     *
+     * @return The backend in use.
+     */
+    @NotNull
+    public JsonBackend backend() {
+        return backend;
+    }
+
+    /**
+     * Sets the backend that parses and generates the json text.
+     *
+     * All backends load the same values and write the same json, but only {@link JsonBackend#STREAMING}, the
+     * default, supports lazy loading and string pools.
+     *
+     * @param value The backend to use.
+     * @return This object, for chaining.
+     */
+    public JsonConfigurationOptions backend(@NotNull final JsonBackend value) {
+        backend = value;
+        return this;
+    }
+
+    /**
+     * Gets the largest document that is loaded.
+     *
+     * @return The largest size in chars of json text, or bytes of the binary encoding.
+     */
+    public long maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the largest document that is loaded, failing the load of anything larger as soon as the limit is passed.
+     *
+     * The limit applies to the contents after decompression, so it also guards against small compressed files that
+     * expand enormously.  A {@link MappedJsonConfiguration} checks the size of its file in bytes instead.  This and
+     * the other limits are meant for loading files that cannot be trusted; they are not applied when lazily loaded
+     * values are read later, since those were checked while the document was loaded.
+     *
+     * @param value The largest size in chars of json text, or bytes of the binary encoding.  The default,
+     *              {@link Long#MAX_VALUE}, sets no limit.
+     * @return This object, for chaining.
+     */
+    public JsonConfigurationOptions maxSize(final long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive");
+        }
+        maxSize = value;
+        return this;
+    }
+
+    /**
+     * Gets how deeply objects and arrays may be nested in a loaded document.
+     *
+     * @return The greatest number of objects and arrays that may be open at once, counting the top level object.
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Sets how deeply objects and arrays may be nested in a loaded document.
+     *
+     * Loading never recurses, so deep documents cannot overflow the stack, but each level still costs memory.
+     *
+     * @param value The greatest number of objects and arrays that may be open at once, counting the top level
+     *              object.  The default, {@link Integer#MAX_VALUE}, sets no limit.
+     * @return This object, for chaining.
+     */
+    public JsonConfigurationOptions maxDepth(final int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("The maximum depth must be positive");
+        }
+        maxDepth = value;
+        return this;
+    }
+
+    /**
+     * Gets how many entries a single object or array of a loaded document may have.
+     *
+     * @return The greatest number of entries.
+     */
+    public int maxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Sets how many entries a single object or array of a loaded document may have.
+     *
+     * @param value The greatest number of entries.  The default, {@link Integer#MAX_VALUE}, sets no limit.
+     * @return This object, for chaining.
+     */
+    public JsonConfigurationOptions maxEntries(final int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("The maximum number of entries must be positive");
+        }
+        maxEntries = value;
+        return this;
+    }
+
+    /**
+     * Gets how long strings, keys and numbers in a loaded document may be.
+     *
+     * @return The greatest length in chars.
+     */
+    public int maxStringLength() {
+        return maxStringLength;
+    }
+
+    /**
+     * Sets how long strings, keys and numbers in a loaded document may be.  The binary encoding is checked by the
+     * length in bytes of its strings, before they are read.
+     *
+     * @param value The greatest length in chars.  The default, {@link Integer#MAX_VALUE}, sets no limit.
+     * @return This object, for chaining.
+     */
+    public JsonConfigurationOptions maxStringLength(final int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("The maximum string length must be positive");
+        }
+        maxStringLength = value;
+        return this;
+    }
+
+    /**
+     * @return the limits to load documents with, or null if there are none.
+     */
+    JsonLimits limits() {
+        return JsonLimits.of(this);
+    }
 }
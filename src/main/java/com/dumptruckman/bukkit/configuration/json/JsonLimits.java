@@ -0,0 +1,40 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The limits a document is held to while it is read, as set in {@link JsonConfigurationOptions}.
+ */
+final class JsonLimits {
+
+    final long maxSize;
+    final int maxDepth;
+    final int maxEntries;
+    final int maxStringLength;
+    final char separator;
+
+    private JsonLimits(final long maxSize, final int maxDepth, final int maxEntries, final int maxStringLength,
+                       final char separator) {
+        this.maxSize = maxSize;
+        this.maxDepth = maxDepth;
+        this.maxEntries = maxEntries;
+        this.maxStringLength = maxStringLength;
+        this.separator = separator;
+    }
+
+    /**
+     * @return the limits set in the options, or null if none are.
+     */
+    static JsonLimits of(@NotNull final JsonConfigurationOptions options) {
+        if (options.maxSize() == Long.MAX_VALUE && options.maxDepth() == Integer.MAX_VALUE
+                && options.maxEntries() == Integer.MAX_VALUE && options.maxStringLength() == Integer.MAX_VALUE) {
+            return null;
+        }
+        return new JsonLimits(options.maxSize(), options.maxDepth(), options.maxEntries(), options.maxStringLength(),
+                options.pathSeparator());
+    }
+
+}
@@ -0,0 +1,81 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+/**
+ * Follows where a token source is in a document, so errors can name the path of the offending value, and counts the
+ * entries of each open object and array.
+ */
+final class JsonPath {
+
+    private final char separator;
+    private String[] names = new String[32];
+    private int[] entries = new int[32];
+    private boolean[] objects = new boolean[32];
+    private int depth;
+
+    JsonPath(final char separator) {
+        this.separator = separator;
+    }
+
+    void push(final boolean object) {
+        if (depth == names.length) {
+            final String[] grownNames = new String[depth * 2];
+            System.arraycopy(names, 0, grownNames, 0, depth);
+            names = grownNames;
+            final int[] grownEntries = new int[depth * 2];
+            System.arraycopy(entries, 0, grownEntries, 0, depth);
+            entries = grownEntries;
+            final boolean[] grownObjects = new boolean[depth * 2];
+            System.arraycopy(objects, 0, grownObjects, 0, depth);
+            objects = grownObjects;
+        }
+        names[depth] = null;
+        entries[depth] = 0;
+        objects[depth] = object;
+        depth++;
+    }
+
+    void pop() {
+        depth--;
+    }
+
+    /**
+     * Starts the next entry of the innermost object or array.
+     *
+     * @param name the key of the entry, for objects.
+     * @return the number of entries the object or array has so far, including this one.
+     */
+    int entry(final String name) {
+        names[depth - 1] = name;
+        return ++entries[depth - 1];
+    }
+
+    /**
+     * @return "path" followed by the path of the current entry, or "the top level" outside of any entry.
+     */
+    String describe() {
+        final String path = toString();
+        return path.isEmpty() ? "the top level" : "path " + path;
+    }
+
+    /**
+     * @return the path of the current entry, with array elements given by their index in brackets.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth && entries[i] > 0; i++) {
+            if (objects[i]) {
+                if (builder.length() > 0) {
+                    builder.append(separator);
+                }
+                builder.append(names[i]);
+            } else {
+                builder.append('[').append(entries[i] - 1).append(']');
+            }
+        }
+        return builder.toString();
+    }
+}
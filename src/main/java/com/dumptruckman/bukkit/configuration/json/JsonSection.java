@@ -0,0 +1,119 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemorySection;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The sections of a {@link JsonConfiguration}.
+ *
+ * Behaves exactly like a {@link MemorySection}, except that values left unparsed by
+ * {@link JsonConfigurationOptions#lazyLoading(boolean) lazy loading} are materialized the first time they are accessed.
+ *
+ * With {@link JsonConfigurationOptions#incrementalSaving(boolean) incremental saving}, a section also keeps the json
+ * it was last saved as, as long as it only holds values that cannot change without going through
+ * {@link #set(String, Object)}, so that saving again only has to write the sections changed since.
+ */
+class JsonSection extends MemorySection {
+
+    private JsonSectionWriter.Fragment json;
+
+    JsonSection(@NotNull final ConfigurationSection parent, @NotNull final String path) {
+        super(parent, path);
+    }
+
+    @Override
+    public Object get(final String path, final Object def) {
+        final Object value = super.get(path, def);
+        if (value instanceof LazyValue) {
+            ((LazyValue) value).materialize(this, path);
+            return super.get(path, def);
+        }
+        return value;
+    }
+
+    @Override
+    public ConfigurationSection createSection(final String path) {
+        if (path == null || path.isEmpty() || path.indexOf(getRoot().options().pathSeparator()) != -1) {
+            return super.createSection(path);
+        }
+        final JsonConfiguration root = (JsonConfiguration) getRoot();
+        final ConfigurationSection section = root.newSection(this, path);
+        final Object old = map.put(path, section);
+        changed();
+        root.sectionChanged(this, path, old, section);
+        return section;
+    }
+
+    @Override
+    public void set(final String path, final Object value) {
+        final Object old = map.get(path);
+        super.set(path, value);
+        changed();
+        ((JsonConfiguration) getRoot()).sectionChanged(this, path, old, value);
+    }
+
+    @Override
+    public Set<String> getKeys(final boolean deep) {
+        if (deep) {
+            materializeAll(true);
+        }
+        return super.getKeys(deep);
+    }
+
+    @Override
+    public Map<String, Object> getValues(final boolean deep) {
+        materializeAll(deep);
+        return super.getValues(deep);
+    }
+
+    void materializeAll(final boolean deep) {
+        LazyValue.materializeAll(this, map, deep);
+    }
+
+    /**
+     * @return the value directly under the given key, without loading it.
+     */
+    Object getRaw(@NotNull final String key) {
+        return map.get(key);
+    }
+
+    /**
+     * Adds the values of this section to a path index.
+     *
+     * @param prefix the path of this section followed by the separator.
+     */
+    void index(@NotNull final PathIndex index, @NotNull final String prefix) {
+        index.addAll(prefix, this, map);
+    }
+
+    /**
+     * @return the json this section was last saved as, or null if it changed since or could not be kept.
+     */
+    JsonSectionWriter.Fragment getSavedJson() {
+        return json;
+    }
+
+    void setSavedJson(@NotNull final JsonSectionWriter.Fragment json) {
+        this.json = json;
+    }
+
+    /**
+     * Forgets the saved json of this section and of every section containing it.
+     */
+    private void changed() {
+        // A section is only ever saved along with its children, so once one without saved json is reached, none of
+        // the sections above it have any either.
+        ConfigurationSection section = this;
+        while (section instanceof JsonSection && ((JsonSection) section).json != null) {
+            ((JsonSection) section).json = null;
+            section = section.getParent();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.json.JsonTokenizer.Token;
+import com.dumptruckman.bukkit.configuration.util.ConfigurationMetrics;
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds configuration sections straight from the tokens of a {@link JsonTokenizer} or any other
+ * {@link JsonTokenSource}.
+ *
+ * The document is walked exactly once.  Objects below a section become sections as soon as their first key is read,
+ * so no intermediate Map tree is created for them.  Objects that carry the
+ * {@link ConfigurationSerialization#SERIALIZED_TYPE_KEY}, and anything inside a list, are collected as plain Maps and
+ * Lists instead and deserialized the moment they are closed.  Nested objects are therefore deserialized first, the
+ * same order {@link SerializationHelper#deserialize(Map)} uses.
+ *
+ * When loading lazily, objects and arrays directly inside a section are not walked at all but validated and kept as
+ * {@link LazyValue}s, which are loaded through {@link #loadValue(String, JsonTokenizer)} once they are accessed.
+ */
+final class JsonSectionLoader {
+
+    private static final int UNDECIDED = 0;
+    private static final int SECTION = 1;
+    private static final int MAP = 2;
+    private static final int LIST = 3;
+
+    private static final class Frame {
+        int mode;
+        ConfigurationSection parent;
+        String key;
+        ConfigurationSection section;
+        Map<String, Object> map;
+        List<Object> list;
+        String name;
+
+        void clear() {
+            parent = null;
+            key = null;
+            section = null;
+            map = null;
+            list = null;
+            name = null;
+        }
+    }
+
+    @NotNull
+    private final ConfigurationSection root;
+    private final boolean lazy;
+    private final List<Frame> frames = new ArrayList<Frame>();
+    private final ConfigurationMetrics metrics;
+    private int depth;
+    private int lazyDepth;
+    private long created;
+
+    JsonSectionLoader(@NotNull final ConfigurationSection root) {
+        this(root, false);
+    }
+
+    JsonSectionLoader(@NotNull final ConfigurationSection root, final boolean lazy) {
+        this.root = root;
+        this.lazy = lazy;
+        this.metrics = root.getRoot() instanceof JsonConfiguration
+                ? ((JsonConfiguration) root.getRoot()).options().metrics() : null;
+    }
+
+    /**
+     * @return the number of sections and values created so far, including those inside lists and maps, counting
+     * values left unparsed as one each.
+     */
+    long getCreated() {
+        return created;
+    }
+
+    void load(@NotNull final JsonTokenSource tokenizer) throws IOException, InvalidConfigurationException {
+        Token token = tokenizer.next();
+        if (token == null) {
+            return;
+        }
+        if (token != Token.START_OBJECT) {
+            throw new InvalidConfigurationException("Top level is not a Map.");
+        }
+        push(SECTION).section = root;
+        lazyDepth = 1;
+
+        while (depth > 0 && (token = tokenizer.next()) != null) {
+            handle(token, tokenizer);
+        }
+        // Consume the end of the document so trailing garbage is still reported.
+        tokenizer.next();
+    }
+
+    /**
+     * Loads a document holding a single value and sets it at the given key of the root section.  Objects directly
+     * inside that value are loaded lazily again, but the value itself is not.
+     */
+    void loadValue(@NotNull final String key, @NotNull final JsonTokenizer tokenizer)
+            throws IOException, InvalidConfigurationException {
+        final Frame base = push(SECTION);
+        base.section = root;
+        base.name = key;
+        lazyDepth = 2;
+
+        Token token;
+        do {
+            token = tokenizer.next();
+            if (token == null) {
+                throw new InvalidConfigurationException("Unexpected end of json.");
+            }
+            handle(token, tokenizer);
+        } while (depth > 1);
+        frames.get(--depth).clear();
+        tokenizer.next();
+    }
+
+    private void handle(@NotNull final Token token, @NotNull final JsonTokenSource tokenizer)
+            throws IOException, InvalidConfigurationException {
+        switch (token) {
+            case FIELD_NAME:
+                readName(tokenizer.name());
+                break;
+            case VALUE:
+                add(tokenizer.value());
+                break;
+            case START_OBJECT:
+                if (skipLazily(tokenizer)) {
+                    break;
+                }
+                startObject();
+                break;
+            case START_ARRAY:
+                if (skipLazily(tokenizer)) {
+                    break;
+                }
+                push(LIST).list = new ArrayList<Object>();
+                break;
+            default:
+                end();
+        }
+    }
+
+    private boolean skipLazily(@NotNull final JsonTokenSource tokenizer)
+            throws IOException, InvalidConfigurationException {
+        // Only json text can be kept unparsed.
+        if (!lazy || depth < lazyDepth || frames.get(depth - 1).mode != SECTION
+                || !(tokenizer instanceof JsonTokenizer)) {
+            return false;
+        }
+        add(LazyValue.of(((JsonTokenizer) tokenizer).skipContainer()));
+        return true;
+    }
+
+    private Frame push(final int mode) {
+        final Frame frame;
+        if (depth == frames.size()) {
+            frame = new Frame();
+            frames.add(frame);
+        } else {
+            frame = frames.get(depth);
+        }
+        depth++;
+        frame.mode = mode;
+        return frame;
+    }
+
+    private void startObject() {
+        final Frame parent = frames.get(depth - 1);
+        if (parent.mode == SECTION) {
+            // Whether this becomes a section or a serialized object is decided by its first key.
+            final Frame frame = push(UNDECIDED);
+            frame.parent = parent.section;
+            frame.key = parent.name;
+        } else {
+            push(MAP).map = new LinkedHashMap<String, Object>();
+        }
+    }
+
+    private void readName(@NotNull final String name) throws InvalidConfigurationException {
+        final Frame frame = frames.get(depth - 1);
+        frame.name = name;
+        if (frame.mode == UNDECIDED) {
+            if (ConfigurationSerialization.SERIALIZED_TYPE_KEY.equals(name)) {
+                frame.mode = MAP;
+                frame.map = new LinkedHashMap<String, Object>();
+            } else {
+                frame.mode = SECTION;
+                frame.section = frame.parent.createSection(frame.key);
+                created++;
+            }
+        } else if (frame.mode == SECTION && ConfigurationSerialization.SERIALIZED_TYPE_KEY.equals(name)) {
+            // The type key normally comes first, but hand edited files may have it anywhere.
+            if (frame.section == root) {
+                throw new InvalidConfigurationException("Top level cannot be a serialized object.");
+            }
+            frame.map = toMap(frame.section);
+            frame.parent.set(frame.key, null);
+            frame.section = null;
+            frame.mode = MAP;
+        }
+    }
+
+    private void add(final Object value) {
+        created++;
+        final Frame frame = frames.get(depth - 1);
+        switch (frame.mode) {
+            case SECTION:
+                frame.section.set(frame.name, value);
+                break;
+            case MAP:
+                frame.map.put(frame.name, value);
+                break;
+            default:
+                frame.list.add(value);
+        }
+    }
+
+    private void end() {
+        final Frame frame = frames.get(--depth);
+        Object value = null;
+        boolean attach = true;
+        switch (frame.mode) {
+            case UNDECIDED:
+                frame.parent.createSection(frame.key);
+                created++;
+                attach = false;
+                break;
+            case SECTION:
+                attach = false;
+                break;
+            case MAP:
+                value = frame.map.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)
+                        ? SerializationHelper.deserializeObject(frame.map, metrics) : frame.map;
+                break;
+            default:
+                value = frame.list;
+        }
+        frame.clear();
+        if (attach && depth > 0) {
+            add(value);
+        }
+    }
+
+    @NotNull
+    private static Map<String, Object> toMap(@NotNull final ConfigurationSection section) {
+        final Map<String, Object> values = section.getValues(false);
+        for (final Map.Entry<String, Object> entry : values.entrySet()) {
+            if (entry.getValue() instanceof ConfigurationSection) {
+                entry.setValue(toMap((ConfigurationSection) entry.getValue()));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,448 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.SerializableSet;
+import com.dumptruckman.bukkit.configuration.util.ConfigurationMetrics;
+import com.dumptruckman.bukkit.configuration.util.SerializationCache;
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes configuration sections as JSON straight to a {@link Writer}.
+ *
+ * Produces the same output as passing the result of {@link SerializationHelper#serialize(Object)} to
+ * {@link net.minidev.json.JSONValue#toJSONString(Object)}, but walks sections, lists and
+ * {@link ConfigurationSerializable}s directly instead of copying them into a tree of Maps and Lists first.
+ *
+ * With {@link JsonConfigurationOptions#incrementalSaving(boolean) incremental saving}, the json of each
+ * {@link JsonSection} is also kept in the section if nothing in it can change behind its back, and written as is the
+ * next time for as long as the section is unchanged.  Everything else is written straight to the writer.
+ */
+final class JsonSectionWriter {
+
+    private static final Logger LOG = Logger.getLogger(JsonSectionWriter.class.getName());
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * The form of a {@link ConfigurationSerializable} once its {@link ConfigurationSerializable#serialize()} has been
+     * called.
+     */
+    private static final class Serialized {
+        final Object alias;
+        final Map<String, Object> values;
+
+        Serialized(@NotNull final Object alias, @NotNull final Map<String, Object> values) {
+            this.alias = alias;
+            this.values = values;
+        }
+    }
+
+    /**
+     * The json a section was saved as.  The json of the sections in it is not copied but referred to, so the saved
+     * json of a whole configuration takes about as much memory as the document.
+     */
+    static final class Fragment {
+        /** Strings, and the fragments of the sections in between. */
+        @NotNull
+        final Object[] parts;
+
+        Fragment(@NotNull final Object[] parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder();
+            append(builder);
+            return builder.toString();
+        }
+
+        private void append(@NotNull final StringBuilder builder) {
+            for (final Object part : parts) {
+                if (part instanceof Fragment) {
+                    ((Fragment) part).append(builder);
+                } else {
+                    builder.append((String) part);
+                }
+            }
+        }
+    }
+
+    /**
+     * The fragment of a section being written.
+     */
+    private static final class Capture {
+        final List<Object> parts = new ArrayList<Object>();
+        final StringBuilder text = new StringBuilder();
+
+        void add(@NotNull final Fragment fragment) {
+            endText();
+            parts.add(fragment);
+        }
+
+        @NotNull
+        Fragment finish() {
+            endText();
+            return new Fragment(parts.toArray());
+        }
+
+        private void endText() {
+            if (text.length() > 0) {
+                parts.add(text.toString());
+                text.setLength(0);
+            }
+        }
+    }
+
+    @NotNull
+    private final Writer out;
+    private final ConfigurationMetrics metrics;
+    private final char[] buffer = new char[8192];
+    private int pos;
+    private long written;
+
+    /**
+     * Whether everything written so far consisted of values that cannot change without the section they are in
+     * knowing about it.
+     */
+    private boolean reusable = true;
+    /** The section whose values are being written, if any. */
+    private ConfigurationSection writing;
+    /** Where the innermost section being kept is written to as well, if any. */
+    private Capture capture;
+
+    JsonSectionWriter(@NotNull final Writer out) {
+        this(out, null);
+    }
+
+    /**
+     * @param metrics where the errors that are logged and skipped are also reported, if anywhere.
+     */
+    JsonSectionWriter(@NotNull final Writer out, final ConfigurationMetrics metrics) {
+        this.out = out;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the number of characters handed to the underlying writer so far.
+     */
+    long getWritten() {
+        return written;
+    }
+
+    /**
+     * Writes a section, or a tree already produced by {@link SerializationHelper#serialize(Object)}, and hands
+     * everything buffered to the underlying writer.
+     */
+    void write(@NotNull final Object root) throws IOException {
+        if (root instanceof ConfigurationSection) {
+            writing = (ConfigurationSection) root;
+        }
+        writeResolved(resolve(root));
+        flush();
+    }
+
+    /**
+     * Does everything that may fail for a value before any of it is written, so a failure never leaves a dangling
+     * key behind.
+     */
+    private static Object resolve(Object value) {
+        if (value instanceof Object[]) {
+            value = Arrays.asList((Object[]) value);
+        }
+        if (value instanceof Set && !(value instanceof SerializableSet)) {
+            value = new SerializableSet((Set) value);
+        }
+        if (value instanceof JsonSection) {
+            return value;
+        } else if (value instanceof ConfigurationSection) {
+            return ((ConfigurationSection) value).getValues(false);
+        } else if (value instanceof Map || value instanceof List) {
+            return value;
+        } else if (value instanceof ConfigurationSerializable) {
+            final ConfigurationSerializable serializable = (ConfigurationSerializable) value;
+            final Map<String, Object> values = serializable.serialize();
+            final Object alias = values.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)
+                    ? values.get(ConfigurationSerialization.SERIALIZED_TYPE_KEY)
+                    : SerializationCache.getAlias(serializable.getClass());
+            return new Serialized(alias, values);
+        }
+        return value;
+    }
+
+    private void writeResolved(final Object value) throws IOException {
+        if (value instanceof JsonSection) {
+            writeSection((JsonSection) value);
+        } else if (value instanceof Map) {
+            reusable = false;
+            writeMap((Map<?, ?>) value);
+        } else if (value instanceof List) {
+            reusable = false;
+            writeList(((List<?>) value).iterator());
+        } else if (value instanceof Serialized) {
+            reusable = false;
+            writeSerialized((Serialized) value);
+        } else {
+            if (!isImmutable(value)) {
+                reusable = false;
+            }
+            writePrimitive(value);
+        }
+    }
+
+    private void writeSection(@NotNull final JsonSection section) throws IOException {
+        // A section moved in from elsewhere with set(path, section) still has its old parent, so changing it would
+        // not forget the saved json of the section being written.
+        final boolean owned = section == writing || section.getParent() == writing;
+        final JsonConfigurationOptions options = (JsonConfigurationOptions) section.getRoot().options();
+        // With copied defaults the values of the section can also change through its defaults.
+        final boolean keep = owned && options.incrementalSaving() && !options.copyDefaults();
+        if (keep) {
+            final Fragment saved = section.getSavedJson();
+            if (saved != null) {
+                writeFragment(saved);
+                return;
+            }
+        }
+
+        final ConfigurationSection outerWriting = writing;
+        final boolean outerReusable = reusable;
+        final Capture outerCapture = capture;
+        writing = section;
+        reusable = true;
+        capture = keep ? new Capture() : null;
+        writeMap(section.getValues(false));
+        final Capture captured = capture;
+        final boolean sectionReusable = reusable && keep;
+        writing = outerWriting;
+        capture = outerCapture;
+        reusable = outerReusable && sectionReusable;
+        if (sectionReusable) {
+            final Fragment fragment = captured.finish();
+            section.setSavedJson(fragment);
+            if (capture != null) {
+                capture.add(fragment);
+            }
+        }
+    }
+
+    private void writeFragment(@NotNull final Fragment fragment) throws IOException {
+        if (capture != null) {
+            capture.add(fragment);
+        }
+        final Capture outer = capture;
+        capture = null;
+        writeParts(fragment);
+        capture = outer;
+    }
+
+    private void writeParts(@NotNull final Fragment fragment) throws IOException {
+        for (final Object part : fragment.parts) {
+            if (part instanceof Fragment) {
+                writeParts((Fragment) part);
+            } else {
+                write((String) part);
+            }
+        }
+    }
+
+    private static boolean isImmutable(final Object value) {
+        return value == null || value instanceof String || value instanceof Integer || value instanceof Long
+                || value instanceof Double || value instanceof Boolean || value instanceof Float
+                || value instanceof Short || value instanceof Byte || value instanceof Character
+                || value instanceof BigInteger || value instanceof BigDecimal;
+    }
+
+    private void writeMap(@NotNull final Map<?, ?> map) throws IOException {
+        write('{');
+        boolean first = true;
+        try {
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                final String key = entry.getKey().toString();
+                final Object value = resolve(entry.getValue());
+                if (!first) {
+                    write(',');
+                }
+                first = false;
+                writeString(key);
+                write(':');
+                writeResolved(value);
+            }
+        } catch (final RuntimeException e) {
+            swallowed("Error while building configuration map.", e);
+        }
+        write('}');
+    }
+
+    private void writeSerialized(@NotNull final Serialized serialized) throws IOException {
+        write('{');
+        writeString(ConfigurationSerialization.SERIALIZED_TYPE_KEY);
+        write(':');
+        writePrimitive(serialized.alias);
+        try {
+            for (final Map.Entry<String, Object> entry : serialized.values.entrySet()) {
+                if (ConfigurationSerialization.SERIALIZED_TYPE_KEY.equals(entry.getKey())) {
+                    continue;
+                }
+                final Object value = resolve(entry.getValue());
+                write(',');
+                writeString(entry.getKey());
+                write(':');
+                writeResolved(value);
+            }
+        } catch (final RuntimeException e) {
+            swallowed("Error while building configuration map.", e);
+        }
+        write('}');
+    }
+
+    private void writeList(@NotNull final Iterator<?> iterator) throws IOException {
+        write('[');
+        boolean first = true;
+        try {
+            while (iterator.hasNext()) {
+                final Object value = resolve(iterator.next());
+                if (!first) {
+                    write(',');
+                }
+                first = false;
+                writeResolved(value);
+            }
+        } catch (final RuntimeException e) {
+            swallowed("Error while building configuration list.", e);
+        }
+        write(']');
+    }
+
+    private void swallowed(@NotNull final String message, @NotNull final RuntimeException e) {
+        reusable = false;
+        LOG.log(Level.WARNING, message, e);
+        if (metrics != null) {
+            metrics.swallowed("serialize", e);
+        }
+    }
+
+    private void writePrimitive(final Object value) throws IOException {
+        if (value == null) {
+            write("null");
+        } else if (value instanceof String) {
+            writeString((String) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            final double d = ((Number) value).doubleValue();
+            write(Double.isNaN(d) || Double.isInfinite(d) ? "null" : value.toString());
+        } else if (value instanceof Number || value instanceof Boolean) {
+            write(value.toString());
+        } else if (value instanceof Iterable) {
+            writeList(((Iterable<?>) value).iterator());
+        } else if (value.getClass().isArray()) {
+            write('[');
+            for (int i = 0, length = Array.getLength(value); i < length; i++) {
+                if (i > 0) {
+                    write(',');
+                }
+                writePrimitive(Array.get(value, i));
+            }
+            write(']');
+        } else {
+            writeString(value.toString());
+        }
+    }
+
+    /**
+     * Writes a quoted string escaped the way json-smart does by default, which includes escaping '/'.
+     */
+    private void writeString(@NotNull final String s) throws IOException {
+        write('"');
+        for (int i = 0, length = s.length(); i < length; i++) {
+            final char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    write('\\');
+                    write('"');
+                    break;
+                case '\\':
+                    write('\\');
+                    write('\\');
+                    break;
+                case '/':
+                    write('\\');
+                    write('/');
+                    break;
+                case '\b':
+                    write('\\');
+                    write('b');
+                    break;
+                case '\f':
+                    write('\\');
+                    write('f');
+                    break;
+                case '\n':
+                    write('\\');
+                    write('n');
+                    break;
+                case '\r':
+                    write('\\');
+                    write('r');
+                    break;
+                case '\t':
+                    write('\\');
+                    write('t');
+                    break;
+                default:
+                    if (c <= 0x1F || (c >= 0x7F && c <= 0x9F) || (c >= 0x2000 && c <= 0x20FF)) {
+                        write('\\');
+                        write('u');
+                        write(HEX[(c >> 12) & 0xF]);
+                        write(HEX[(c >> 8) & 0xF]);
+                        write(HEX[(c >> 4) & 0xF]);
+                        write(HEX[c & 0xF]);
+                    } else {
+                        write(c);
+                    }
+            }
+        }
+        write('"');
+    }
+
+    private void write(@NotNull final String s) throws IOException {
+        for (int i = 0, length = s.length(); i < length; i++) {
+            write(s.charAt(i));
+        }
+    }
+
+    private void flush() throws IOException {
+        out.write(buffer, 0, pos);
+        written += pos;
+        pos = 0;
+    }
+
+    private void write(final char c) throws IOException {
+        if (pos == buffer.length) {
+            flush();
+        }
+        buffer[pos++] = c;
+        if (capture != null) {
+            capture.text.append(c);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.util.ConfigurationMetrics;
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import net.minidev.json.JSONValue;
+import net.minidev.json.parser.JSONParser;
+import net.minidev.json.parser.ParseException;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link JsonBackend#JSON_SMART} backend, which goes through a tree of Maps and Lists the way this library
+ * originally did.
+ *
+ * json-smart parses recursively and has no limits of its own, so if any limits are set, the document is checked by
+ * a pass of {@link JsonTokenizer} before it is handed to json-smart.
+ */
+final class JsonSmartBackend implements JsonBackend {
+
+    @Override
+    public long load(@NotNull final Reader reader, @NotNull final JsonConfiguration config)
+            throws IOException, InvalidConfigurationException {
+        final long maxSize = config.options().maxSize();
+        final StringBuilder contents = new StringBuilder();
+        final char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            contents.append(buffer, 0, read);
+            if (contents.length() > maxSize) {
+                throw new InvalidConfigurationException("Invalid JSON detected: Document larger than " + maxSize
+                        + " chars.");
+            }
+        }
+        return load(contents.toString(), config);
+    }
+
+    @Override
+    public long load(@NotNull final String contents, @NotNull final JsonConfiguration config)
+            throws InvalidConfigurationException {
+        if (contents.trim().isEmpty()) {
+            return 0;
+        }
+        final JsonLimits limits = config.options().limits();
+        if (limits != null) {
+            try {
+                final JsonTokenizer tokenizer = new JsonTokenizer(contents, null, limits);
+                while (tokenizer.next() != null) {
+                    // Only checking.
+                }
+            } catch (IOException e) {
+                // Strings never fail to read.
+                throw new InvalidConfigurationException("An unknown error occurred while attempting to parse the json.",
+                        e);
+            }
+        }
+
+        Map<?, ?> input;
+        try {
+            input = (Map<?, ?>) new JSONParser(JSONParser.USE_INTEGER_STORAGE).parse(contents);
+        } catch (ParseException e) {
+            throw new InvalidConfigurationException("Invalid JSON detected.", e);
+        } catch (ClassCastException e) {
+            throw new InvalidConfigurationException("Top level is not a Map.", e);
+        }
+
+        if (input == null) {
+            throw new InvalidConfigurationException("Top level is not a Map.");
+        }
+        // The top level itself is not a node of its own.
+        final long created = count(input) - 1;
+        final Object result = SerializationHelper.deserialize(input, config.options().metrics());
+        if (!(result instanceof Map)) {
+            throw new InvalidConfigurationException("Top level cannot be a serialized object.");
+        }
+        convertMapsToSections((Map<?, ?>) result, config);
+        return created;
+    }
+
+    private static void convertMapsToSections(@NotNull final Map<?, ?> input,
+                                              @NotNull final ConfigurationSection section) {
+        final Deque<Map<?, ?>> maps = new ArrayDeque<Map<?, ?>>();
+        final Deque<ConfigurationSection> sections = new ArrayDeque<ConfigurationSection>();
+        maps.push(input);
+        sections.push(section);
+        while (!maps.isEmpty()) {
+            final Map<?, ?> map = maps.pop();
+            final ConfigurationSection target = sections.pop();
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                final String key = entry.getKey().toString();
+                final Object value = entry.getValue();
+
+                if (value instanceof Map) {
+                    maps.push((Map<?, ?>) value);
+                    sections.push(target.createSection(key));
+                } else {
+                    target.set(key, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of nodes in a parsed tree, counting the given one.
+     */
+    private static long count(@NotNull final Map<?, ?> root) {
+        long count = 1;
+        final Deque<Object> containers = new ArrayDeque<Object>();
+        containers.push(root);
+        while (!containers.isEmpty()) {
+            final Object container = containers.pop();
+            final Collection<?> children = container instanceof Map
+                    ? ((Map<?, ?>) container).values() : (List<?>) container;
+            for (final Object child : children) {
+                count++;
+                if (child instanceof Map || child instanceof List) {
+                    containers.push(child);
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long save(@NotNull final Object values, @NotNull final Writer writer, final ConfigurationMetrics metrics)
+            throws IOException {
+        final String json = JSONValue.toJSONString(SerializationHelper.serialize(values, metrics));
+        writer.write(json);
+        return json.length();
+    }
+
+    @Override
+    public String toString() {
+        return "json-smart";
+    }
+}
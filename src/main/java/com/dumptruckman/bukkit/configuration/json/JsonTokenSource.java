@@ -0,0 +1,32 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.json.JsonTokenizer.Token;
+import org.bukkit.configuration.InvalidConfigurationException;
+
+import java.io.IOException;
+
+/**
+ * Something {@link JsonSectionLoader} can pull the tokens of a document from.
+ */
+interface JsonTokenSource {
+
+    /**
+     * Advances to the next token.
+     *
+     * @return the token read, or null once the end of the document has been reached.
+     */
+    Token next() throws IOException, InvalidConfigurationException;
+
+    /**
+     * @return the name read by the last {@link Token#FIELD_NAME}.
+     */
+    String name();
+
+    /**
+     * @return the String, Number, Boolean or null read by the last {@link Token#VALUE}.
+     */
+    Object value();
+}
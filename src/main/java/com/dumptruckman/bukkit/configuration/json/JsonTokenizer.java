@@ -0,0 +1,541 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+
+/**
+ * A pull tokenizer for JSON text.
+ *
+ * Input is consumed through a small reusable buffer, either from a {@link Reader} or from a {@link String}, so the
+ * document never has to exist in memory as a whole.  The grammar is the strict one json-smart applies with
+ * {@link net.minidev.json.parser.JSONParser#USE_INTEGER_STORAGE}: integral numbers become an Integer, Long or
+ * BigInteger depending on their magnitude and all other numbers become a Double.
+ */
+final class JsonTokenizer implements JsonTokenSource {
+
+    enum Token {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, FIELD_NAME, VALUE
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final byte IN_OBJECT = 1;
+    private static final byte IN_ARRAY = 2;
+
+    private static final int EXPECT_ROOT = 0;
+    private static final int EXPECT_FIRST = 1;
+    private static final int EXPECT_VALUE = 2;
+    private static final int EXPECT_SEPARATOR = 3;
+    private static final int EXPECT_END = 4;
+
+    private static final char[] TRUE = "true".toCharArray();
+    private static final char[] FALSE = "false".toCharArray();
+    private static final char[] NULL = "null".toCharArray();
+
+    private final Reader reader;
+    private final String string;
+    private int stringOffset;
+    private final StringPool pool;
+
+    private final long maxSize;
+    private final int maxDepth;
+    private final int maxEntries;
+    private final int maxStringLength;
+    /** Only followed if there are limits, to name the path of what exceeds them. */
+    private final JsonPath path;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private long consumed;
+    private int line = 1;
+    private long lineStart;
+
+    private byte[] stack = new byte[32];
+    private int depth;
+    private int expect = EXPECT_ROOT;
+
+    private String name;
+    private Object value;
+
+    private final StringBuilder scratch = new StringBuilder();
+    private char[] number = new char[32];
+
+    private boolean skipping;
+    private StringBuilder capture;
+    private int captureFrom;
+
+    JsonTokenizer(@NotNull final Reader reader) {
+        this(reader, null);
+    }
+
+    JsonTokenizer(@NotNull final String string) {
+        this(string, null);
+    }
+
+    /**
+     * @param pool the pool to take names and string values from, or null to always create new Strings.
+     */
+    JsonTokenizer(@NotNull final Reader reader, final StringPool pool) {
+        this(reader, null, pool, null);
+    }
+
+    /**
+     * @param pool the pool to take names and string values from, or null to always create new Strings.
+     */
+    JsonTokenizer(@NotNull final String string, final StringPool pool) {
+        this(null, string, pool, null);
+    }
+
+    /**
+     * @param pool the pool to take names and string values from, or null to always create new Strings.
+     * @param limits the limits to hold the document to, or null for none.
+     */
+    JsonTokenizer(@NotNull final Reader reader, final StringPool pool, final JsonLimits limits) {
+        this(reader, null, pool, limits);
+    }
+
+    /**
+     * @param pool the pool to take names and string values from, or null to always create new Strings.
+     * @param limits the limits to hold the document to, or null for none.
+     */
+    JsonTokenizer(@NotNull final String string, final StringPool pool, final JsonLimits limits) {
+        this(null, string, pool, limits);
+    }
+
+    private JsonTokenizer(final Reader reader, final String string, final StringPool pool, final JsonLimits limits) {
+        this.reader = reader;
+        this.string = string;
+        this.pool = pool;
+        if (limits != null) {
+            maxSize = limits.maxSize;
+            maxDepth = limits.maxDepth;
+            maxEntries = limits.maxEntries;
+            maxStringLength = limits.maxStringLength;
+            path = new JsonPath(limits.separator);
+        } else {
+            maxSize = Long.MAX_VALUE;
+            maxDepth = Integer.MAX_VALUE;
+            maxEntries = Integer.MAX_VALUE;
+            maxStringLength = Integer.MAX_VALUE;
+            path = null;
+        }
+    }
+
+    @Override
+    public Token next() throws IOException, InvalidConfigurationException {
+        int c = skipWhitespace();
+        switch (expect) {
+            case EXPECT_ROOT:
+                if (c == -1) {
+                    // A blank document is treated as an empty one.
+                    expect = EXPECT_END;
+                    return null;
+                }
+                return readValue(c);
+            case EXPECT_FIRST:
+                if (c == closer()) {
+                    return readEnd(c);
+                }
+                return stack[depth - 1] == IN_OBJECT ? readName(c) : readValue(c);
+            case EXPECT_VALUE:
+                return readValue(c);
+            case EXPECT_SEPARATOR:
+                if (c == ',') {
+                    pos++;
+                    c = skipWhitespace();
+                    return stack[depth - 1] == IN_OBJECT ? readName(c) : readValue(c);
+                }
+                return readEnd(c);
+            default:
+                if (c != -1) {
+                    throw error("Unexpected data after the end of the document");
+                }
+                return null;
+        }
+    }
+
+    /**
+     * Skips the object or array just started by {@link Token#START_OBJECT} or {@link Token#START_ARRAY}.
+     *
+     * The skipped json is still fully validated but no values are created for it.
+     *
+     * @return the json text of the skipped object or array.
+     */
+    @NotNull
+    String skipContainer() throws IOException, InvalidConfigurationException {
+        final int target = depth - 1;
+        if (capture == null) {
+            capture = new StringBuilder();
+        }
+        capture.setLength(0);
+        captureFrom = pos - 1;
+        skipping = true;
+        try {
+            while (depth > target) {
+                if (next() == null) {
+                    throw error("Unexpected end of input");
+                }
+            }
+        } finally {
+            skipping = false;
+        }
+        capture.append(buffer, captureFrom, pos - captureFrom);
+        final String result = capture.toString();
+        capture.setLength(0);
+        return result;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Object value() {
+        return value;
+    }
+
+    /**
+     * @return the number of objects and arrays currently open.
+     */
+    int depth() {
+        return depth;
+    }
+
+    private Token readName(final int c) throws IOException, InvalidConfigurationException {
+        if (c != '"') {
+            throw error(c == -1 ? "Unexpected end of input" : "Expected a field name");
+        }
+        pos++;
+        // Names are kept while skipping if errors may have to name the path.
+        name = readString(path != null);
+        if (path != null && path.entry(name) > maxEntries) {
+            throw limitExceeded("More than " + maxEntries + " entries in an object");
+        }
+        if (skipWhitespace() != ':') {
+            throw error("Expected ':'");
+        }
+        pos++;
+        expect = EXPECT_VALUE;
+        return Token.FIELD_NAME;
+    }
+
+    private Token readValue(final int c) throws IOException, InvalidConfigurationException {
+        if (path != null && depth > 0 && expect != EXPECT_VALUE && path.entry(null) > maxEntries) {
+            throw limitExceeded("More than " + maxEntries + " entries in an array");
+        }
+        switch (c) {
+            case '{':
+                pos++;
+                push(IN_OBJECT);
+                return Token.START_OBJECT;
+            case '[':
+                pos++;
+                push(IN_ARRAY);
+                return Token.START_ARRAY;
+            case '"':
+                pos++;
+                value = readString(false);
+                break;
+            case 't':
+                readLiteral(TRUE);
+                value = Boolean.TRUE;
+                break;
+            case 'f':
+                readLiteral(FALSE);
+                value = Boolean.FALSE;
+                break;
+            case 'n':
+                readLiteral(NULL);
+                value = null;
+                break;
+            case -1:
+                throw error("Unexpected end of input");
+            default:
+                if (c != '-' && (c < '0' || c > '9')) {
+                    throw error("Unexpected character '" + (char) c + "'");
+                }
+                value = readNumber();
+        }
+        expect = depth == 0 ? EXPECT_END : EXPECT_SEPARATOR;
+        return Token.VALUE;
+    }
+
+    private Token readEnd(final int c) throws InvalidConfigurationException {
+        final int closer = closer();
+        if (c != closer) {
+            throw error(c == -1 ? "Unexpected end of input" : "Expected ',' or '" + (char) closer + "'");
+        }
+        pos++;
+        if (path != null) {
+            path.pop();
+        }
+        final byte container = stack[--depth];
+        expect = depth == 0 ? EXPECT_END : EXPECT_SEPARATOR;
+        return container == IN_OBJECT ? Token.END_OBJECT : Token.END_ARRAY;
+    }
+
+    private int closer() {
+        return depth == 0 ? -2 : stack[depth - 1] == IN_OBJECT ? '}' : ']';
+    }
+
+    private void push(final byte container) throws InvalidConfigurationException {
+        if (path != null) {
+            if (depth >= maxDepth) {
+                throw limitExceeded("Nesting deeper than " + maxDepth + " levels");
+            }
+            path.push(container == IN_OBJECT);
+        }
+        if (depth == stack.length) {
+            final byte[] grown = new byte[depth * 2];
+            System.arraycopy(stack, 0, grown, 0, depth);
+            stack = grown;
+        }
+        stack[depth++] = container;
+        expect = EXPECT_FIRST;
+    }
+
+    /**
+     * @param keep whether to return the string even while skipping.
+     */
+    private String readString(final boolean keep) throws IOException, InvalidConfigurationException {
+        final boolean discard = skipping && !keep;
+        // Fast path: the whole string sits in the buffer and has no escapes.
+        final int start = pos;
+        for (int i = start; i < limit; i++) {
+            final char c = buffer[i];
+            if (c == '"') {
+                if (i - start > maxStringLength) {
+                    throw limitExceeded("String longer than " + maxStringLength + " chars");
+                }
+                pos = i + 1;
+                if (discard) {
+                    return null;
+                }
+                return pool != null ? pool.get(buffer, start, i - start) : new String(buffer, start, i - start);
+            } else if (c == '\\') {
+                break;
+            }
+        }
+
+        scratch.setLength(0);
+        int length = 0;
+        while (true) {
+            if (pos == limit && !fill()) {
+                throw error("Unterminated string");
+            }
+            final char c = buffer[pos++];
+            if (c == '"') {
+                if (discard) {
+                    return null;
+                }
+                return pool != null ? pool.get(scratch) : scratch.toString();
+            }
+            if (++length > maxStringLength) {
+                throw limitExceeded("String longer than " + maxStringLength + " chars");
+            }
+            if (c == '\\') {
+                final char escaped = readEscape();
+                if (!discard) {
+                    scratch.append(escaped);
+                }
+            } else if (!discard) {
+                scratch.append(c);
+            }
+        }
+    }
+
+    private char readEscape() throws IOException, InvalidConfigurationException {
+        if (pos == limit && !fill()) {
+            throw error("Unterminated string");
+        }
+        final char c = buffer[pos++];
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int result = 0;
+                for (int i = 0; i < 4; i++) {
+                    if (pos == limit && !fill()) {
+                        throw error("Unterminated string");
+                    }
+                    final int digit = Character.digit(buffer[pos++], 16);
+                    if (digit < 0) {
+                        throw error("Invalid unicode escape");
+                    }
+                    result = (result << 4) | digit;
+                }
+                return (char) result;
+            default:
+                throw error("Invalid escape '\\" + c + "'");
+        }
+    }
+
+    private void readLiteral(final char[] literal) throws IOException, InvalidConfigurationException {
+        for (final char expected : literal) {
+            if (pos == limit && !fill()) {
+                throw error("Unexpected end of input");
+            }
+            if (buffer[pos] != expected) {
+                throw error("Unexpected character '" + buffer[pos] + "'");
+            }
+            pos++;
+        }
+    }
+
+    private Number readNumber() throws IOException, InvalidConfigurationException {
+        int length = 0;
+        while (pos < limit || fill()) {
+            final char c = buffer[pos];
+            if ((c < '0' || c > '9') && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E') {
+                break;
+            }
+            if (length == maxStringLength) {
+                throw limitExceeded("Number longer than " + maxStringLength + " chars");
+            }
+            if (length == number.length) {
+                final char[] grown = new char[length * 2];
+                System.arraycopy(number, 0, grown, 0, length);
+                number = grown;
+            }
+            number[length++] = c;
+            pos++;
+        }
+
+        // -?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)?
+        int i = number[0] == '-' ? 1 : 0;
+        final int intStart = i;
+        while (i < length && number[i] >= '0' && number[i] <= '9') {
+            i++;
+        }
+        final int intEnd = i;
+        if (intEnd == intStart || (number[intStart] == '0' && intEnd - intStart > 1)) {
+            throw error("Malformed number");
+        }
+        boolean integral = true;
+        if (i < length && number[i] == '.') {
+            integral = false;
+            final int fractionStart = ++i;
+            while (i < length && number[i] >= '0' && number[i] <= '9') {
+                i++;
+            }
+            if (i == fractionStart) {
+                throw error("Malformed number");
+            }
+        }
+        if (i < length && (number[i] == 'e' || number[i] == 'E')) {
+            integral = false;
+            i++;
+            if (i < length && (number[i] == '+' || number[i] == '-')) {
+                i++;
+            }
+            final int exponentStart = i;
+            while (i < length && number[i] >= '0' && number[i] <= '9') {
+                i++;
+            }
+            if (i == exponentStart) {
+                throw error("Malformed number");
+            }
+        }
+        if (i != length) {
+            throw error("Malformed number");
+        }
+
+        if (skipping) {
+            return null;
+        }
+        if (!integral) {
+            return Double.valueOf(new String(number, 0, length));
+        }
+        if (intEnd - intStart > 18) {
+            final BigInteger big = new BigInteger(new String(number, 0, length));
+            return big.bitLength() < 64 ? (Number) big.longValue() : big;
+        }
+        long result = 0;
+        for (int j = intStart; j < intEnd; j++) {
+            result = result * 10 + (number[j] - '0');
+        }
+        if (intStart == 1) {
+            result = -result;
+        }
+        if (result >= Integer.MIN_VALUE && result <= Integer.MAX_VALUE) {
+            return (int) result;
+        }
+        return result;
+    }
+
+    private int skipWhitespace() throws IOException, InvalidConfigurationException {
+        while (pos < limit || fill()) {
+            final char c = buffer[pos];
+            if (c == '\n') {
+                line++;
+                lineStart = consumed + pos + 1;
+            } else if (c != ' ' && c != '\t' && c != '\r') {
+                return c;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    private boolean fill() throws IOException, InvalidConfigurationException {
+        if (skipping) {
+            capture.append(buffer, captureFrom, limit - captureFrom);
+            captureFrom = 0;
+        }
+        consumed += limit;
+        pos = 0;
+        limit = 0;
+        if (reader != null) {
+            int read;
+            do {
+                read = reader.read(buffer, 0, buffer.length);
+            } while (read == 0);
+            if (read > 0) {
+                limit = read;
+            }
+        } else if (string != null && stringOffset < string.length()) {
+            limit = Math.min(buffer.length, string.length() - stringOffset);
+            string.getChars(stringOffset, stringOffset + limit, buffer, 0);
+            stringOffset += limit;
+        }
+        if (consumed + limit > maxSize) {
+            throw limitExceeded("Document larger than " + maxSize + " chars");
+        }
+        return limit > 0;
+    }
+
+    private InvalidConfigurationException error(@NotNull final String message) {
+        return error(message, "");
+    }
+
+    private InvalidConfigurationException limitExceeded(@NotNull final String message) {
+        return error(message, path.describe() + ", ");
+    }
+
+    private InvalidConfigurationException error(@NotNull final String message, @NotNull final String where) {
+        final long offset = consumed + pos;
+        return new InvalidConfigurationException("Invalid JSON detected: " + message + " at " + where + "line " + line
+                + ", column " + (offset - lineStart + 1) + ".");
+    }
+}
@@ -0,0 +1,89 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.MemorySection;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Stands in for a value of a configuration that has not been parsed yet, until it is first accessed.
+ */
+abstract class LazyValue {
+
+    /**
+     * A value of a lazily loaded configuration, kept as its json text.  The text was fully validated when it was
+     * skipped, so materializing it cannot fail on syntax.
+     */
+    private static final class Text extends LazyValue {
+
+        @NotNull
+        private final String json;
+
+        Text(@NotNull final String json) {
+            this.json = json;
+        }
+
+        @Override
+        void materialize(@NotNull final ConfigurationSection section, @NotNull final String key) {
+            parse(section, key, json);
+        }
+    }
+
+    @NotNull
+    static LazyValue of(@NotNull final String json) {
+        return new Text(json);
+    }
+
+    /**
+     * Parses the value into the section under the given key, replacing this placeholder.
+     */
+    abstract void materialize(@NotNull ConfigurationSection section, @NotNull String key);
+
+    /**
+     * Parses json text into the section under the given key.  Objects become {@link JsonSection}s whose own objects
+     * and arrays are lazy again.
+     */
+    static void parse(@NotNull final ConfigurationSection section, @NotNull final String key,
+                      @NotNull final String json) {
+        final JsonConfiguration root = section.getRoot() instanceof JsonConfiguration
+                ? (JsonConfiguration) section.getRoot() : null;
+        if (root != null) {
+            // Materializing only fills in what was loaded already.
+            root.beginQuiet();
+        }
+        try {
+            new JsonSectionLoader(section, true)
+                    .loadValue(key, new JsonTokenizer(json, root != null ? root.options().stringPool() : null));
+        } catch (IOException | InvalidConfigurationException e) {
+            throw new IllegalStateException("Could not materialize lazily loaded json at "
+                    + MemorySection.createPath(section, key), e);
+        } finally {
+            if (root != null) {
+                root.endQuiet();
+            }
+        }
+    }
+
+    /**
+     * Materializes every placeholder directly in the given section map, and in every section below it if deep.
+     */
+    static void materializeAll(@NotNull final ConfigurationSection section, @NotNull final Map<String, Object> map,
+                               final boolean deep) {
+        for (final String key : map.keySet().toArray(new String[map.size()])) {
+            Object value = map.get(key);
+            if (value instanceof LazyValue) {
+                ((LazyValue) value).materialize(section, key);
+                value = map.get(key);
+            }
+            if (deep && value instanceof JsonSection) {
+                ((JsonSection) value).materializeAll(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.MemorySection;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A read only {@link JsonConfiguration} backed by a memory mapped file, for large files of static data of which only
+ * parts are ever read.
+ *
+ * Opening the file only scans its bytes for where each top level value starts and ends and decodes the top level
+ * keys.  Everything else stays in the mapped file until it is accessed: a section is indexed the same way the first
+ * time it is read, and any other value is decoded when it is first read.  The structure of the file is checked while
+ * scanning, but the values themselves are only validated once they are decoded, so a malformed value is reported by
+ * the access that decodes it, as an {@link IllegalStateException}.
+ *
+ * Decoded values are kept, so the memory used grows with what is read rather than with the size of the file.  Any
+ * attempt to change the configuration throws an {@link UnsupportedOperationException}; reading is safe from any
+ * number of threads.  The mapping is released by the garbage collector once the configuration is no longer
+ * referenced, which on some platforms keeps the file from being deleted until then.
+ */
+public class MappedJsonConfiguration extends JsonConfiguration {
+
+    /**
+     * A value that has not been decoded yet, given by its position in the mapped file.
+     */
+    private final class MappedValue extends LazyValue {
+
+        private final int start;
+        private final int end;
+
+        MappedValue(final int start, final int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        void materialize(@NotNull final ConfigurationSection section, @NotNull final String key) {
+            writable++;
+            // Materializing only fills in what was loaded already.
+            beginQuiet();
+            try {
+                if (data.get(start) == '{') {
+                    final List<Object> entries = new ArrayList<Object>();
+                    if (scanObject(start + 1, entries) != end) {
+                        throw error("Unexpected data after object", end);
+                    }
+                    if (!entries.contains(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+                        fill(section.createSection(key), entries);
+                        return;
+                    }
+                }
+                parse(section, key, decode(start, end));
+            } catch (InvalidConfigurationException e) {
+                throw new IllegalStateException("Could not decode mapped json at " + MemorySection.createPath(section,
+                        key), e);
+            } finally {
+                endQuiet();
+                writable--;
+            }
+        }
+    }
+
+    /**
+     * The sections of a {@link MappedJsonConfiguration}, read only and safe to read concurrently.
+     */
+    private static final class MappedSection extends JsonSection {
+
+        MappedSection(@NotNull final ConfigurationSection parent, @NotNull final String path) {
+            super(parent, path);
+        }
+
+        private MappedJsonConfiguration config() {
+            return (MappedJsonConfiguration) getRoot();
+        }
+
+        @Override
+        public Object get(final String path, final Object def) {
+            synchronized (config()) {
+                return super.get(path, def);
+            }
+        }
+
+        @Override
+        public Set<String> getKeys(final boolean deep) {
+            synchronized (config()) {
+                return super.getKeys(deep);
+            }
+        }
+
+        @Override
+        public Map<String, Object> getValues(final boolean deep) {
+            synchronized (config()) {
+                return super.getValues(deep);
+            }
+        }
+
+        @Override
+        public void set(final String path, final Object value) {
+            config().checkWritable();
+            super.set(path, value);
+        }
+
+        @Override
+        public ConfigurationSection createSection(final String path) {
+            config().checkWritable();
+            return super.createSection(path);
+        }
+    }
+
+    private ByteBuffer data;
+    private int writable;
+
+    /**
+     * Maps a json formatted file and indexes its top level.
+     *
+     * @param file The file to open.
+     * @return The configuration backed by the file.
+     * @throws IOException If the file cannot be mapped.
+     * @throws InvalidConfigurationException If the file is not structured like a json object.
+     */
+    @NotNull
+    public static MappedJsonConfiguration open(@NotNull final File file)
+            throws IOException, InvalidConfigurationException {
+        final MappedJsonConfiguration config = new MappedJsonConfiguration();
+        config.load(file);
+        return config;
+    }
+
+    /**
+     * Maps a json formatted file and indexes its top level, replacing anything loaded before.
+     *
+     * @param file The file to map.
+     * @throws IOException If the file cannot be mapped.
+     * @throws InvalidConfigurationException If the file is not structured like a json object.
+     */
+    @Override
+    public synchronized void load(@NotNull final File file) throws IOException, InvalidConfigurationException {
+        final long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to be mapped");
+            }
+            if (channel.size() > options().maxSize()) {
+                throw new InvalidConfigurationException("Document larger than " + options().maxSize() + " bytes.");
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        writable++;
+        try {
+            discardPathIndex();
+            map.clear();
+            int pos = skipWhitespace(0);
+            if (pos == data.limit()) {
+                return;
+            }
+            if (data.get(pos) != '{') {
+                if (data.limit() > pos + 1 && (data.get(pos) & 0xFF) == (GZIPInputStream.GZIP_MAGIC & 0xFF)
+                        && (data.get(pos + 1) & 0xFF) == GZIPInputStream.GZIP_MAGIC >> 8) {
+                    throw new InvalidConfigurationException("Compressed files cannot be mapped.");
+                }
+                throw new InvalidConfigurationException("Top level is not a Map.");
+            }
+            final List<Object> entries = new ArrayList<Object>();
+            pos = skipWhitespace(scanObject(pos + 1, entries));
+            if (pos != data.limit()) {
+                throw error("Unexpected data after the end of the document", pos);
+            }
+            if (entries.contains(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+                throw new InvalidConfigurationException("Top level cannot be a serialized object.");
+            }
+            fill(this, entries);
+            loaded();
+            reportLoad(file, data.limit(), entries.size() / 3, start);
+        } finally {
+            writable--;
+        }
+    }
+
+    /**
+     * Not supported, the configuration can only be loaded from a file.
+     */
+    @Override
+    public void load(@NotNull final Reader reader) {
+        throw new UnsupportedOperationException("A MappedJsonConfiguration can only be loaded from a file");
+    }
+
+    /**
+     * Not supported, the configuration can only be loaded from a file.
+     */
+    @Override
+    public void loadBinary(@NotNull final InputStream input) {
+        throw new UnsupportedOperationException("A MappedJsonConfiguration can only be loaded from a file");
+    }
+
+    /**
+     * Not supported, the configuration can only be loaded from a file.
+     */
+    @Override
+    public void loadFromString(@NotNull final String contents) {
+        throw new UnsupportedOperationException("A MappedJsonConfiguration can only be loaded from a file");
+    }
+
+    @Override
+    public synchronized Object get(final String path, final Object def) {
+        return super.get(path, def);
+    }
+
+    @Override
+    public synchronized Set<String> getKeys(final boolean deep) {
+        return super.getKeys(deep);
+    }
+
+    @Override
+    public synchronized Map<String, Object> getValues(final boolean deep) {
+        return super.getValues(deep);
+    }
+
+    @Override
+    public void set(final String path, final Object value) {
+        checkWritable();
+        super.set(path, value);
+    }
+
+    @Override
+    public ConfigurationSection createSection(final String path) {
+        checkWritable();
+        return super.createSection(path);
+    }
+
+    @NotNull
+    @Override
+    JsonSection newSection(@NotNull final ConfigurationSection parent, @NotNull final String key) {
+        return new MappedSection(parent, key);
+    }
+
+    private void checkWritable() {
+        if (writable == 0) {
+            throw new UnsupportedOperationException("A MappedJsonConfiguration is read only");
+        }
+    }
+
+    /**
+     * Sets the placeholders of the scanned entries of an object in a section.
+     */
+    private void fill(@NotNull final ConfigurationSection section, @NotNull final List<Object> entries) {
+        for (int i = 0; i < entries.size(); i += 3) {
+            section.set((String) entries.get(i), new MappedValue((Integer) entries.get(i + 1),
+                    (Integer) entries.get(i + 2)));
+        }
+    }
+
+    /**
+     * Scans the entries of an object without decoding their values.
+     *
+     * @param pos the position right after the opening brace.
+     * @param entries receives the key, start and end of each value, in turn.
+     * @return the position right after the closing brace.
+     */
+    private int scanObject(int pos, @NotNull final List<Object> entries) throws InvalidConfigurationException {
+        pos = skipWhitespace(pos);
+        if (pos < data.limit() && data.get(pos) == '}') {
+            return pos + 1;
+        }
+        while (true) {
+            if (pos == data.limit() || data.get(pos) != '"') {
+                throw error("Expected a field name", pos);
+            }
+            final int keyEnd = skipString(pos);
+            entries.add(decodeKey(pos, keyEnd));
+            pos = skipWhitespace(keyEnd);
+            if (pos == data.limit() || data.get(pos) != ':') {
+                throw error("Expected ':'", pos);
+            }
+            final int start = skipWhitespace(pos + 1);
+            final int end = skipValue(start);
+            entries.add(start);
+            entries.add(end);
+            pos = skipWhitespace(end);
+            if (pos == data.limit()) {
+                throw error("Unexpected end of input", pos);
+            }
+            final byte c = data.get(pos++);
+            if (c == '}') {
+                return pos;
+            } else if (c != ',') {
+                throw error("Expected ',' or '}'", pos - 1);
+            }
+            pos = skipWhitespace(pos);
+        }
+    }
+
+    /**
+     * @return the position right after the value starting at the given position.
+     */
+    private int skipValue(int pos) throws InvalidConfigurationException {
+        if (pos == data.limit()) {
+            throw error("Unexpected end of input", pos);
+        }
+        final byte first = data.get(pos);
+        if (first == '"') {
+            return skipString(pos);
+        }
+        if (first != '{' && first != '[') {
+            while (pos < data.limit()) {
+                final byte c = data.get(pos);
+                if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                    break;
+                }
+                pos++;
+            }
+            return pos;
+        }
+        // Objects and arrays only need their brackets matched; strings are skipped so brackets in them don't count.
+        int depth = 0;
+        while (pos < data.limit()) {
+            final byte c = data.get(pos);
+            if (c == '"') {
+                pos = skipString(pos);
+                continue;
+            }
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) {
+                    return pos + 1;
+                }
+            }
+            pos++;
+        }
+        throw error("Unexpected end of input", pos);
+    }
+
+    /**
+     * @return the position right after the closing quote of the string starting at the given position.
+     */
+    private int skipString(int pos) throws InvalidConfigurationException {
+        pos++;
+        while (pos < data.limit()) {
+            final byte c = data.get(pos++);
+            if (c == '"') {
+                return pos;
+            } else if (c == '\\') {
+                pos++;
+            }
+        }
+        throw error("Unterminated string", pos);
+    }
+
+    private int skipWhitespace(int pos) {
+        while (pos < data.limit()) {
+            final byte c = data.get(pos);
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    @NotNull
+    private String decodeKey(final int start, final int end) throws InvalidConfigurationException {
+        for (int i = start + 1; i < end - 1; i++) {
+            if (data.get(i) == '\\') {
+                // Leave escapes to the tokenizer.
+                final JsonTokenizer tokenizer = new JsonTokenizer(decode(start, end));
+                try {
+                    tokenizer.next();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                return (String) tokenizer.value();
+            }
+        }
+        final String key = decode(start + 1, end - 1);
+        final StringPool pool = options().stringPool();
+        return pool != null ? pool.intern(key) : key;
+    }
+
+    @NotNull
+    private String decode(final int start, final int end) {
+        final ByteBuffer slice = data.duplicate();
+        slice.position(start);
+        slice.limit(end);
+        return StandardCharsets.UTF_8.decode(slice).toString();
+    }
+
+    private InvalidConfigurationException error(@NotNull final String message, final int pos) {
+        return new InvalidConfigurationException("Invalid JSON detected: " + message + " at byte " + pos + ".");
+    }
+}
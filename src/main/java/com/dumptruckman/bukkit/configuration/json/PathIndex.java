@@ -0,0 +1,89 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The values of a {@link JsonConfiguration} by their full path, so that looking up a path is a single hash lookup
+ * of the path as given instead of splitting it and walking the sections.
+ *
+ * Only the sections of the configuration itself are descended into, and values that have not been loaded yet are
+ * left out along with everything below them.  A path missing from the index is therefore not necessarily missing
+ * from the configuration, it just has to be looked up the usual way.
+ */
+final class PathIndex {
+
+    private final char separator;
+    private final Map<String, Object> values = new HashMap<String, Object>();
+
+    PathIndex(final char separator) {
+        this.separator = separator;
+    }
+
+    char separator() {
+        return separator;
+    }
+
+    /**
+     * @return the value at the given path, or null if it is not indexed.
+     */
+    Object get(@NotNull final String path) {
+        final Object value = values.get(path);
+        return value instanceof LazyValue ? null : value;
+    }
+
+    /**
+     * Indexes the entries of a section map, and of the sections below it.
+     *
+     * @param prefix the path of the section followed by the separator, or an empty string for the root.
+     */
+    void addAll(@NotNull final String prefix, @NotNull final ConfigurationSection owner,
+                @NotNull final Map<String, Object> map) {
+        for (final Map.Entry<String, Object> entry : map.entrySet()) {
+            add(prefix + entry.getKey(), owner, entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Updates the index after a key directly inside a section was set.
+     *
+     * @param old the value the key had before.
+     * @param value the value the key has now, or null if it was removed.
+     */
+    void replaced(@NotNull final String path, @NotNull final ConfigurationSection owner, @NotNull final String key,
+                  final Object old, final Object value) {
+        if (old instanceof JsonSection && old != value) {
+            // Anything below a section is indexed under its path, which is far rarer to replace than a plain value.
+            final String prefix = path + separator;
+            final Iterator<String> paths = values.keySet().iterator();
+            while (paths.hasNext()) {
+                if (paths.next().startsWith(prefix)) {
+                    paths.remove();
+                }
+            }
+        }
+        values.remove(path);
+        if (value != null) {
+            add(path, owner, key, value);
+        }
+    }
+
+    private void add(@NotNull final String path, @NotNull final ConfigurationSection owner, @NotNull final String key,
+                     final Object value) {
+        // A key containing the separator cannot be reached by its path, which would name something else.
+        if (value instanceof LazyValue || key.indexOf(separator) != -1) {
+            return;
+        }
+        values.put(path, value);
+        if (value instanceof JsonSection && ((JsonSection) value).getParent() == owner) {
+            ((JsonSection) value).index(this, path + separator);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemorySection;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds sections to interfaces and classes for {@link JsonConfiguration#bind(String, Class)}.
+ *
+ * What a type binds is worked out once per type and kept: the key and type of every accessor, and for classes the
+ * prebuilt {@link MethodHandle}s of the constructor and field setters.  Binding reads every key once, converting and
+ * checking each value, so reading a bound class afterwards is a field read.  Reading through an interface is a
+ * proxy call, a lookup of the accessor and an array read.
+ */
+final class SectionBinder {
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final class Property {
+        @NotNull
+        final String key;
+        @NotNull
+        final Class<?> type;
+
+        Property(@NotNull final String key, @NotNull final Class<?> type) {
+            this.key = key;
+            this.type = type;
+        }
+    }
+
+    private static final class Schema {
+        @NotNull
+        final Property[] properties;
+        /** The index of the property of each accessor, for interfaces. */
+        final Map<Method, Integer> methods;
+        /** For classes. */
+        final MethodHandle constructor;
+        /** For classes, by the index of their property. */
+        final MethodHandle[] setters;
+
+        Schema(@NotNull final Property[] properties, final Map<Method, Integer> methods,
+               final MethodHandle constructor, final MethodHandle[] setters) {
+            this.properties = properties;
+            this.methods = methods;
+            this.constructor = constructor;
+            this.setters = setters;
+        }
+    }
+
+    private static final ClassValue<Schema> SCHEMAS = new ClassValue<Schema>() {
+        @Override
+        protected Schema computeValue(final Class<?> type) {
+            return type.isInterface() ? interfaceSchema(type) : classSchema(type);
+        }
+    };
+
+    /**
+     * The values of a view along with the modification count of the configuration they were read at, swapped in
+     * together so no thread sees one without the other.
+     */
+    private static final class Snapshot {
+        @NotNull
+        final Object[] values;
+        final long modifications;
+
+        Snapshot(@NotNull final Object[] values, final long modifications) {
+            this.values = values;
+            this.modifications = modifications;
+        }
+    }
+
+    /**
+     * A live view of a section through an interface.  The values are read again the first time a bound value is
+     * read after the configuration changed.
+     */
+    private static final class View implements InvocationHandler {
+
+        @NotNull
+        private final JsonConfiguration root;
+        @NotNull
+        private final String path;
+        @NotNull
+        private final Class<?> type;
+        @NotNull
+        private final Schema schema;
+        private volatile Snapshot snapshot;
+
+        View(@NotNull final JsonConfiguration root, @NotNull final ConfigurationSection section,
+             @NotNull final Class<?> type, @NotNull final Schema schema) {
+            this.root = root;
+            this.path = section.getCurrentPath();
+            this.type = type;
+            this.schema = schema;
+            final long modifications = root.modifications();
+            snapshot = new Snapshot(read(root, section, schema), modifications);
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            final Integer index = schema.methods.get(method);
+            if (index == null) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return toString();
+                }
+            }
+            Snapshot current = snapshot;
+            if (root.modifications() != current.modifications) {
+                current = refresh();
+            }
+            return current.values[index];
+        }
+
+        @NotNull
+        private Snapshot refresh() {
+            // Read first, so a change made while reading is picked up by the next call.
+            final long modifications = root.modifications();
+            final ConfigurationSection section = section(root, path);
+            if (section == null) {
+                throw new IllegalStateException("Bound path " + path + " is no longer a section");
+            }
+            final Snapshot refreshed;
+            try {
+                refreshed = new Snapshot(read(root, section, schema), modifications);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            snapshot = refreshed;
+            return refreshed;
+        }
+
+        @Override
+        public String toString() {
+            final Object[] values = snapshot.values;
+            final StringBuilder builder = new StringBuilder(type.getSimpleName()).append('{');
+            for (int i = 0; i < schema.properties.length; i++) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                builder.append(schema.properties[i].key).append('=').append(values[i]);
+            }
+            return builder.append('}').toString();
+        }
+    }
+
+    private SectionBinder() {
+        throw new AssertionError();
+    }
+
+    @NotNull
+    static <T> T bind(@NotNull final JsonConfiguration root, @NotNull final String path, @NotNull final Class<T> type) {
+        final ConfigurationSection section = section(root, path);
+        if (section == null) {
+            throw new IllegalArgumentException("No section at " + path);
+        }
+        return type.cast(bind(root, section, type));
+    }
+
+    @NotNull
+    private static Object bind(@NotNull final JsonConfiguration root, @NotNull final ConfigurationSection section,
+                               @NotNull final Class<?> type) {
+        final Schema schema = SCHEMAS.get(type);
+        if (type.isInterface()) {
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                    new View(root, section, type, schema));
+        }
+        final Object[] values = read(root, section, schema);
+        try {
+            final Object instance = schema.constructor.invokeExact();
+            for (int i = 0; i < values.length; i++) {
+                schema.setters[i].invokeExact(instance, values[i]);
+            }
+            return instance;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Could not create " + type.getName(), t);
+        }
+    }
+
+    private static ConfigurationSection section(@NotNull final JsonConfiguration root, @NotNull final String path) {
+        return path.isEmpty() ? root : root.getConfigurationSection(path);
+    }
+
+    @NotNull
+    private static Object[] read(@NotNull final JsonConfiguration root, @NotNull final ConfigurationSection section,
+                                 @NotNull final Schema schema) {
+        final Object[] values = new Object[schema.properties.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = convert(root, section, schema.properties[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Converts a value to the type of its accessor the way the getters of a section do, but failing where those
+     * would quietly return a default.
+     */
+    private static Object convert(@NotNull final JsonConfiguration root, @NotNull final ConfigurationSection section,
+                                  @NotNull final Property property) {
+        final Object value = section.get(property.key);
+        final Class<?> type = property.type;
+        if (value == null) {
+            if (type.isPrimitive()) {
+                throw mismatch(section, property, "nothing");
+            }
+            return null;
+        }
+        if (type == int.class || type == Integer.class) {
+            return integral(section, property, value, Integer.MIN_VALUE, Integer.MAX_VALUE).intValue();
+        } else if (type == long.class || type == Long.class) {
+            return integral(section, property, value, Long.MIN_VALUE, Long.MAX_VALUE);
+        } else if (type == short.class || type == Short.class) {
+            return integral(section, property, value, Short.MIN_VALUE, Short.MAX_VALUE).shortValue();
+        } else if (type == byte.class || type == Byte.class) {
+            return integral(section, property, value, Byte.MIN_VALUE, Byte.MAX_VALUE).byteValue();
+        } else if (type == double.class || type == Double.class) {
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+        } else if (type == float.class || type == Float.class) {
+            if (value instanceof Number) {
+                return ((Number) value).floatValue();
+            }
+        } else if (type == boolean.class || type == Boolean.class) {
+            if (value instanceof Boolean) {
+                return value;
+            }
+        } else if (type.isEnum()) {
+            if (value instanceof String) {
+                for (final Object constant : type.getEnumConstants()) {
+                    if (((Enum<?>) constant).name().equals(value)) {
+                        return constant;
+                    }
+                }
+                throw mismatch(section, property, "\"" + value + "\"");
+            }
+        } else if (type == Map.class && value instanceof ConfigurationSection) {
+            return ((ConfigurationSection) value).getValues(false);
+        } else if (type.isInstance(value)) {
+            return value;
+        } else if (value instanceof ConfigurationSection && !type.isPrimitive() && !type.isArray()
+                && !type.getName().startsWith("java.")) {
+            return bind(root, (ConfigurationSection) value, type);
+        }
+        throw mismatch(section, property, value.getClass().getSimpleName());
+    }
+
+    @NotNull
+    private static Long integral(@NotNull final ConfigurationSection section, @NotNull final Property property,
+                                 @NotNull final Object value, final long min, final long max) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64)) {
+            final long result = ((Number) value).longValue();
+            if (result >= min && result <= max) {
+                return result;
+            }
+        }
+        throw mismatch(section, property, value instanceof Number ? value.toString()
+                : value.getClass().getSimpleName());
+    }
+
+    @NotNull
+    private static IllegalArgumentException mismatch(@NotNull final ConfigurationSection section,
+                                                     @NotNull final Property property, @NotNull final String found) {
+        return new IllegalArgumentException("Cannot bind " + MemorySection.createPath(section, property.key) + " to "
+                + property.type.getSimpleName() + ", found " + found);
+    }
+
+    @NotNull
+    private static Schema interfaceSchema(@NotNull final Class<?> type) {
+        final List<Property> properties = new ArrayList<Property>();
+        final Map<Method, Integer> methods = new HashMap<Method, Integer>();
+        for (final Method method : type.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            if (method.isDefault()) {
+                throw new IllegalArgumentException("Cannot bind " + type.getName() + ": default method "
+                        + method.getName() + " is not supported");
+            }
+            if (method.getParameterTypes().length != 0 || method.getReturnType() == void.class) {
+                throw new IllegalArgumentException("Cannot bind " + type.getName() + ": " + method.getName()
+                        + " is not an accessor without parameters");
+            }
+            methods.put(method, properties.size());
+            properties.add(new Property(key(method), method.getReturnType()));
+        }
+        return new Schema(properties.toArray(new Property[properties.size()]), methods, null, null);
+    }
+
+    @NotNull
+    private static Schema classSchema(@NotNull final Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isEnum() || Modifier.isAbstract(type.getModifiers())
+                || (type.isMemberClass() && !Modifier.isStatic(type.getModifiers()))) {
+            throw new IllegalArgumentException("Cannot bind " + type.getName() + ": not a concrete top level or "
+                    + "static class");
+        }
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            final Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            final MethodHandle constructorHandle = lookup.unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+
+            final List<Property> properties = new ArrayList<Property>();
+            final List<MethodHandle> setters = new ArrayList<MethodHandle>();
+            for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+                for (final Field field : current.getDeclaredFields()) {
+                    final int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    setters.add(lookup.unreflectSetter(field).asType(SETTER_TYPE));
+                    final ConfigurationKey key = field.getAnnotation(ConfigurationKey.class);
+                    properties.add(new Property(key != null ? key.value() : field.getName(), field.getType()));
+                }
+            }
+            return new Schema(properties.toArray(new Property[properties.size()]), null, constructorHandle,
+                    setters.toArray(new MethodHandle[setters.size()]));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Cannot bind " + type.getName() + ": it has no constructor without "
+                    + "parameters", e);
+        } catch (IllegalAccessException | SecurityException e) {
+            throw new IllegalArgumentException("Cannot bind " + type.getName() + ": its fields are not accessible", e);
+        }
+    }
+
+    /**
+     * @return the key of an accessor: the name given by its {@link ConfigurationKey}, or else its name without a get
+     * or is prefix.
+     */
+    @NotNull
+    private static String key(@NotNull final Method method) {
+        final ConfigurationKey key = method.getAnnotation(ConfigurationKey.class);
+        if (key != null) {
+            return key.value();
+        }
+        final String name = method.getName();
+        final int prefix = name.startsWith("get") ? 3
+                : name.startsWith("is") && method.getReturnType() == boolean.class ? 2 : 0;
+        if (prefix > 0 && name.length() > prefix && Character.isUpperCase(name.charAt(prefix))) {
+            return Character.toLowerCase(name.charAt(prefix)) + name.substring(prefix + 1);
+        }
+        return name;
+    }
+}
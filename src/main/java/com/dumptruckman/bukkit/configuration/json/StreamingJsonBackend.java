@@ -0,0 +1,57 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import com.dumptruckman.bukkit.configuration.util.ConfigurationMetrics;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * The {@link JsonBackend#STREAMING} backend, built on {@link JsonTokenizer}, {@link JsonSectionLoader} and
+ * {@link JsonSectionWriter}.
+ */
+final class StreamingJsonBackend implements JsonBackend {
+
+    @Override
+    public long load(@NotNull final Reader reader, @NotNull final JsonConfiguration config)
+            throws IOException, InvalidConfigurationException {
+        return load(new JsonTokenizer(reader, config.options().stringPool(), config.options().limits()), config);
+    }
+
+    @Override
+    public long load(@NotNull final String contents, @NotNull final JsonConfiguration config)
+            throws InvalidConfigurationException {
+        try {
+            return load(new JsonTokenizer(contents, config.options().stringPool(), config.options().limits()),
+                    config);
+        } catch (IOException e) {
+            // Strings never fail to read, but the tokenizer is shared with the Reader based path.
+            throw new InvalidConfigurationException("An unknown error occurred while attempting to parse the json.", e);
+        }
+    }
+
+    private static long load(@NotNull final JsonTokenizer tokenizer, @NotNull final JsonConfiguration config)
+            throws IOException, InvalidConfigurationException {
+        final JsonSectionLoader loader = new JsonSectionLoader(config, config.options().lazyLoading());
+        loader.load(tokenizer);
+        return loader.getCreated();
+    }
+
+    @Override
+    public long save(@NotNull final Object values, @NotNull final Writer writer, final ConfigurationMetrics metrics)
+            throws IOException {
+        final JsonSectionWriter out = new JsonSectionWriter(writer, metrics);
+        out.write(values);
+        return out.getWritten();
+    }
+
+    @Override
+    public String toString() {
+        return "streaming";
+    }
+}
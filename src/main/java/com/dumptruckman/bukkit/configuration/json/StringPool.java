@@ -0,0 +1,201 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of the keys and short string values read while loading, so that a string repeated throughout one
+ * or many files is kept in memory once instead of once per occurrence.
+ *
+ * Strings are looked up straight from the characters being parsed, so a string already in the pool costs no
+ * allocation at all.  The pool is a fixed size table in which each string has exactly one slot; a string that maps to
+ * a slot already taken evicts the one in it.  It may be shared by any number of configurations and threads.
+ *
+ * @see JsonConfigurationOptions#stringPool(StringPool)
+ */
+public final class StringPool {
+
+    private static final StringPool SHARED = new StringPool(8192, 32);
+
+    private final String[] table;
+    private final int mask;
+    private final int maxLength;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    /**
+     * Creates a pool.
+     *
+     * @param capacity The number of strings the pool holds at most, rounded up to a power of two.
+     * @param maxLength The length of the longest string pooled; longer ones are always created anew.
+     */
+    public StringPool(final int capacity, final int maxLength) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        int length = 1;
+        while (length < capacity) {
+            length <<= 1;
+        }
+        this.table = new String[length];
+        this.mask = length - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @return A pool of 8192 strings of up to 32 chars shared by everything that uses it.
+     */
+    @NotNull
+    public static StringPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return The length of the longest string pooled.
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Gets the pooled string with the given characters, creating and pooling it if there is none.
+     */
+    @NotNull
+    String get(@NotNull final char[] chars, final int offset, final int length) {
+        if (length > maxLength) {
+            return new String(chars, offset, length);
+        }
+        int hash = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        final int slot = slot(hash);
+        final String pooled = table[slot];
+        if (pooled != null && pooled.hashCode() == hash && matches(pooled, chars, offset, length)) {
+            hit(length);
+            return pooled;
+        }
+        misses.increment();
+        final String created = new String(chars, offset, length);
+        table[slot] = created;
+        return created;
+    }
+
+    /**
+     * Gets the pooled string with the given characters, creating and pooling it if there is none.
+     */
+    @NotNull
+    String get(@NotNull final CharSequence chars) {
+        final int length = chars.length();
+        if (length > maxLength) {
+            return chars.toString();
+        }
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        final int slot = slot(hash);
+        final String pooled = table[slot];
+        if (pooled != null && pooled.hashCode() == hash && pooled.contentEquals(chars)) {
+            hit(length);
+            return pooled;
+        }
+        misses.increment();
+        final String created = chars.toString();
+        table[slot] = created;
+        return created;
+    }
+
+    /**
+     * Gets the pooled string equal to the given one, pooling it if there is none.
+     */
+    @NotNull
+    public String intern(@NotNull final String string) {
+        if (string.length() > maxLength) {
+            return string;
+        }
+        final int hash = string.hashCode();
+        final int slot = slot(hash);
+        final String pooled = table[slot];
+        if (pooled != null && pooled.hashCode() == hash && pooled.equals(string)) {
+            if (pooled != string) {
+                hit(string.length());
+            }
+            return pooled;
+        }
+        misses.increment();
+        table[slot] = string;
+        return string;
+    }
+
+    /**
+     * @return How many strings were served from the pool.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return How many strings had to be created and put into the pool.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return An estimate of the heap the strings served from the pool would otherwise have taken, assuming a 64 bit
+     * JVM with compressed references.
+     */
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    /**
+     * Forgets every pooled string.  The statistics are kept.
+     */
+    public void clear() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StringPool{capacity=" + table.length + ", maxLength=" + maxLength + ", hits=" + getHits()
+                + ", misses=" + getMisses() + ", bytesSaved=" + getBytesSaved() + "}";
+    }
+
+    private int slot(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void hit(final int length) {
+        hits.increment();
+        // A String header with its hash field, plus the header, length and contents of its char array.
+        bytesSaved.add(24 + align(16 + 2L * length));
+    }
+
+    private static long align(final long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private static boolean matches(@NotNull final String pooled, @NotNull final char[] chars, final int offset,
+                                   final int length) {
+        if (pooled.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (pooled.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
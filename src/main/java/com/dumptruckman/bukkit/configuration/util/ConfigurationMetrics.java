@@ -0,0 +1,57 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+/**
+ * Receives measurements of the loading and saving of configurations.
+ *
+ * Set one for a configuration through its options.  Every method does nothing by default, so only what is of
+ * interest needs to be implemented.  Methods are called on whichever thread does the work, including the threads of
+ * asynchronous saves, so implementations must be thread safe and should return quickly.
+ *
+ * @see InMemoryConfigurationMetrics
+ */
+public interface ConfigurationMetrics {
+
+    /**
+     * Called after a configuration was loaded.
+     *
+     * The json is parsed and turned into sections in the same single pass, so the time given covers both.
+     *
+     * @param file The file loaded, or null if it was not loaded from a file.
+     * @param size The size of what was read: in bytes for files and streams, in characters for strings and readers.
+     * @param values The number of nodes read: sections and values, including those inside lists and serialized
+     *               objects.  A value left to be loaded lazily counts as one.
+     * @param nanos The time the load took, including the deserialization of any objects.
+     */
+    default void loaded(final File file, final long size, final long values, final long nanos) { }
+
+    /**
+     * Called after a configuration was saved.
+     *
+     * @param file The file saved to, or null if it was not saved to a file.
+     * @param size The size of what was written: in bytes for files and streams, in characters for strings and
+     *             writers.
+     * @param nanos The time the save took.
+     */
+    default void saved(final File file, final long size, final long nanos) { }
+
+    /**
+     * Called after an object was deserialized through {@link ConfigurationSerializable}.
+     *
+     * @param alias The alias the object was stored with.
+     * @param nanos The time the deserialization took, not counting objects nested inside it.
+     */
+    default void deserialized(@NotNull final String alias, final long nanos) { }
+
+    /**
+     * Called for an error that is logged and then ignored, leaving out the value that caused it.
+     *
+     * @param where What was being done: "load", "serialize" or "deserialize".
+     * @param error The error.
+     */
+    default void swallowed(@NotNull final String where, @NotNull final Throwable error) { }
+}
@@ -0,0 +1,50 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link InMemoryConfigurationMetrics}, through which its totals can be watched with
+ * JMX tools such as JConsole.
+ */
+public interface ConfigurationMetricsMXBean {
+
+    /**
+     * @return The loads of every configuration combined.
+     */
+    InMemoryConfigurationMetrics.Timing getLoads();
+
+    /**
+     * @return The saves of every configuration combined.
+     */
+    InMemoryConfigurationMetrics.Timing getSaves();
+
+    /**
+     * @return The number of values and sections created by all loads.
+     */
+    long getValuesLoaded();
+
+    /**
+     * @return The loads of each file, by its path.
+     */
+    Map<String, InMemoryConfigurationMetrics.Timing> getFileLoads();
+
+    /**
+     * @return The saves of each file, by its path.
+     */
+    Map<String, InMemoryConfigurationMetrics.Timing> getFileSaves();
+
+    /**
+     * @return The deserializations of each type of object, by its alias.
+     */
+    Map<String, InMemoryConfigurationMetrics.Timing> getDeserializations();
+
+    /**
+     * @return The number of errors ignored, by what was being done.
+     */
+    Map<String, Long> getSwallowedErrors();
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    void reset();
+}
@@ -0,0 +1,224 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps running totals of everything reported to it, overall as well as by file, by type of object and by kind of
+ * error, and can publish them over JMX.
+ *
+ * One instance is meant to be shared by all the configurations of interest:
+ * <pre>
+ * InMemoryConfigurationMetrics metrics = new InMemoryConfigurationMetrics();
+ * metrics.register("com.example:type=ConfigurationMetrics");
+ * config.options().metrics(metrics);
+ * </pre>
+ * Everything is kept until {@link #reset()} is called, which includes an entry for every file ever loaded or saved.
+ */
+public class InMemoryConfigurationMetrics implements ConfigurationMetrics, ConfigurationMetricsMXBean {
+
+    /**
+     * The totals of one kind of operation.
+     */
+    public static final class Timing {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder size = new LongAdder();
+
+        void record(final long nanos, final long size) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            this.size.add(size);
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+            size.reset();
+        }
+
+        /**
+         * @return How many times the operation was done.
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return The time all of them took together.
+         */
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * @return The time the slowest of them took.
+         */
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @return The time they took on average.
+         */
+        public long getAverageNanos() {
+            final long count = getCount();
+            return count == 0 ? 0 : getTotalNanos() / count;
+        }
+
+        /**
+         * @return The combined size of what was read or written, where that applies.
+         */
+        public long getSize() {
+            return size.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "Timing{count=" + getCount() + ", averageNanos=" + getAverageNanos() + ", maxNanos="
+                    + getMaxNanos() + ", size=" + getSize() + '}';
+        }
+    }
+
+    private static final String NO_FILE = "";
+
+    private final Timing loads = new Timing();
+    private final Timing saves = new Timing();
+    private final LongAdder values = new LongAdder();
+    private final ConcurrentMap<String, Timing> fileLoads = new ConcurrentHashMap<String, Timing>();
+    private final ConcurrentMap<String, Timing> fileSaves = new ConcurrentHashMap<String, Timing>();
+    private final ConcurrentMap<String, Timing> deserializations = new ConcurrentHashMap<String, Timing>();
+    private final ConcurrentMap<String, LongAdder> swallowed = new ConcurrentHashMap<String, LongAdder>();
+
+    @Override
+    public void loaded(final File file, final long size, final long values, final long nanos) {
+        loads.record(nanos, size);
+        this.values.add(values);
+        timing(fileLoads, file == null ? NO_FILE : file.getPath()).record(nanos, size);
+    }
+
+    @Override
+    public void saved(final File file, final long size, final long nanos) {
+        saves.record(nanos, size);
+        timing(fileSaves, file == null ? NO_FILE : file.getPath()).record(nanos, size);
+    }
+
+    @Override
+    public void deserialized(@NotNull final String alias, final long nanos) {
+        timing(deserializations, alias).record(nanos, 0);
+    }
+
+    @Override
+    public void swallowed(@NotNull final String where, @NotNull final Throwable error) {
+        swallowed.computeIfAbsent(where, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Publishes these metrics on the platform MBean server.
+     *
+     * @param name The object name to publish them under, such as "com.example:type=ConfigurationMetrics".
+     * @return The name they were published under.
+     * @throws IllegalArgumentException If the name is malformed or already taken.
+     */
+    @NotNull
+    public ObjectName register(@NotNull final String name) {
+        try {
+            final ObjectName objectName = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalArgumentException(name + " is already registered", e);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Cannot register metrics as " + name, e);
+        }
+    }
+
+    @Override
+    public Timing getLoads() {
+        return loads;
+    }
+
+    @Override
+    public Timing getSaves() {
+        return saves;
+    }
+
+    @Override
+    public long getValuesLoaded() {
+        return values.sum();
+    }
+
+    /**
+     * Loads of anything other than a file are listed under an empty path.
+     */
+    @Override
+    public Map<String, Timing> getFileLoads() {
+        return sorted(fileLoads);
+    }
+
+    /**
+     * Saves to anything other than a file are listed under an empty path.
+     */
+    @Override
+    public Map<String, Timing> getFileSaves() {
+        return sorted(fileSaves);
+    }
+
+    @Override
+    public Map<String, Timing> getDeserializations() {
+        return sorted(deserializations);
+    }
+
+    @Override
+    public Map<String, Long> getSwallowedErrors() {
+        final Map<String, Long> counts = new TreeMap<String, Long>();
+        for (final Map.Entry<String, LongAdder> entry : swallowed.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    @Override
+    public void reset() {
+        loads.reset();
+        saves.reset();
+        values.reset();
+        fileLoads.clear();
+        fileSaves.clear();
+        deserializations.clear();
+        swallowed.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryConfigurationMetrics{loads=" + loads + ", saves=" + saves + ", valuesLoaded="
+                + getValuesLoaded() + ", swallowedErrors=" + getSwallowedErrors() + '}';
+    }
+
+    @NotNull
+    private static Timing timing(@NotNull final ConcurrentMap<String, Timing> timings, @NotNull final String key) {
+        final Timing timing = timings.get(key);
+        return timing != null ? timing : timings.computeIfAbsent(key, k -> new Timing());
+    }
+
+    @NotNull
+    private static Map<String, Timing> sorted(@NotNull final Map<String, Timing> timings) {
+        return Collections.unmodifiableMap(new TreeMap<String, Timing>(timings));
+    }
+}
@@ -0,0 +1,184 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches what {@link ConfigurationSerialization} otherwise looks up reflectively for every object: the alias of a
+ * class and the method or constructor used to deserialize an alias.
+ *
+ * Deserializers are resolved the way {@link ConfigurationSerialization} does it, trying a static deserialize(Map),
+ * then a static valueOf(Map), then a constructor taking a Map, and kept as prebuilt {@link MethodHandle}s.  Every hit
+ * is checked against {@link ConfigurationSerialization#getClassByAlias(String)}, which is a plain map lookup, so an
+ * alias registered to a different class is picked up without having to call {@link #invalidate()}.
+ */
+public final class SerializationCache {
+
+    private static final Logger LOG = Logger.getLogger(SerializationCache.class.getName());
+
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(Object.class, Map.class);
+
+    private static final class Factory {
+        final Class<? extends ConfigurationSerializable> type;
+        final MethodHandle[] handles;
+
+        Factory(@NotNull final Class<? extends ConfigurationSerializable> type, @NotNull final MethodHandle[] handles) {
+            this.type = type;
+            this.handles = handles;
+        }
+    }
+
+    private static final ClassValue<String> ALIASES = new ClassValue<String>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected String computeValue(final Class<?> type) {
+            aliasMisses.increment();
+            return ConfigurationSerialization.getAlias((Class<? extends ConfigurationSerializable>) type);
+        }
+    };
+
+    private static final ConcurrentMap<String, Factory> FACTORIES = new ConcurrentHashMap<String, Factory>();
+
+    private static final LongAdder aliasLookups = new LongAdder();
+    private static final LongAdder aliasMisses = new LongAdder();
+    private static final LongAdder factoryHits = new LongAdder();
+    private static final LongAdder factoryMisses = new LongAdder();
+
+    private SerializationCache() {
+        throw new AssertionError();
+    }
+
+    /**
+     * A cached {@link ConfigurationSerialization#getAlias(Class)}.
+     */
+    @NotNull
+    public static String getAlias(@NotNull final Class<? extends ConfigurationSerializable> type) {
+        aliasLookups.increment();
+        return ALIASES.get(type);
+    }
+
+    /**
+     * A cached {@link ConfigurationSerialization#deserializeObject(Map)}.
+     *
+     * @throws IllegalArgumentException if the map has no type key or the type key names no registered class.
+     */
+    public static ConfigurationSerializable deserializeObject(@NotNull final Map<String, ?> args) {
+        return deserializeObject(args, null);
+    }
+
+    /**
+     * Same as {@link #deserializeObject(Map)}, also reporting the errors it logs and ignores to the given metrics.
+     */
+    public static ConfigurationSerializable deserializeObject(@NotNull final Map<String, ?> args,
+                                                              final ConfigurationMetrics metrics) {
+        if (!args.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+            throw new IllegalArgumentException("Args doesn't contain type key ('"
+                    + ConfigurationSerialization.SERIALIZED_TYPE_KEY + "')");
+        }
+        final String alias = (String) args.get(ConfigurationSerialization.SERIALIZED_TYPE_KEY);
+        if (alias == null) {
+            throw new IllegalArgumentException("Cannot have null alias");
+        }
+        final Class<? extends ConfigurationSerializable> type = ConfigurationSerialization.getClassByAlias(alias);
+        if (type == null) {
+            throw new IllegalArgumentException("Specified class does not exist ('" + alias + "')");
+        }
+
+        Factory factory = FACTORIES.get(alias);
+        if (factory != null && factory.type == type) {
+            factoryHits.increment();
+        } else {
+            factoryMisses.increment();
+            factory = new Factory(type, resolve(type));
+            FACTORIES.put(alias, factory);
+        }
+
+        for (final MethodHandle handle : factory.handles) {
+            try {
+                final Object result = handle.invokeExact((Map) args);
+                if (result != null) {
+                    return (ConfigurationSerializable) result;
+                }
+            } catch (Throwable t) {
+                LOG.log(Level.SEVERE, "Could not deserialize " + type + " through " + handle, t);
+                if (metrics != null) {
+                    metrics.swallowed("deserialize", t);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Forgets every cached deserializer.
+     */
+    public static void invalidate() {
+        FACTORIES.clear();
+    }
+
+    /**
+     * @return how many alias lookups were answered from the cache.
+     */
+    public static long getAliasHits() {
+        return aliasLookups.sum() - aliasMisses.sum();
+    }
+
+    /**
+     * @return how many alias lookups had to ask {@link ConfigurationSerialization}.
+     */
+    public static long getAliasMisses() {
+        return aliasMisses.sum();
+    }
+
+    /**
+     * @return how many deserializations used a cached deserializer.
+     */
+    public static long getFactoryHits() {
+        return factoryHits.sum();
+    }
+
+    /**
+     * @return how many deserializations had to resolve their deserializer first.
+     */
+    public static long getFactoryMisses() {
+        return factoryMisses.sum();
+    }
+
+    @NotNull
+    private static MethodHandle[] resolve(@NotNull final Class<? extends ConfigurationSerializable> type) {
+        final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        final List<MethodHandle> handles = new ArrayList<MethodHandle>(3);
+        for (final String name : new String[] {"deserialize", "valueOf"}) {
+            try {
+                final Method method = type.getDeclaredMethod(name, Map.class);
+                if (Modifier.isStatic(method.getModifiers())
+                        && ConfigurationSerializable.class.isAssignableFrom(method.getReturnType())) {
+                    handles.add(lookup.unreflect(method).asType(FACTORY_TYPE));
+                }
+            } catch (NoSuchMethodException | IllegalAccessException | SecurityException ignore) {
+                // Not usable, try the next way of deserializing.
+            }
+        }
+        try {
+            handles.add(lookup.findConstructor(type, MethodType.methodType(void.class, Map.class)).asType(FACTORY_TYPE));
+        } catch (NoSuchMethodException | IllegalAccessException | SecurityException ignore) {
+            // Not usable.
+        }
+        return handles.toArray(new MethodHandle[handles.size()]);
+    }
+}
@@ -7,9 +7,12 @@ import org.bukkit.configuration.serialization.ConfigurationSerialization;
 import org.jetbrains.annotations.NotNull;
 import org.yaml.snakeyaml.error.YAMLException;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +29,13 @@ public class SerializationHelper {
     private static final Logger LOG = Logger.getLogger(SerializationHelper.class.getName());
 
     public static Object serialize(@NotNull Object value) {
+        return serialize(value, null);
+    }
+
+    /**
+     * Same as {@link #serialize(Object)}, also reporting the errors it logs and ignores to the given metrics.
+     */
+    public static Object serialize(@NotNull Object value, final ConfigurationMetrics metrics) {
         if (value instanceof Object[]) {
             value = new ArrayList<>(Arrays.asList((Object[]) value));
         }
@@ -33,17 +43,17 @@ public class SerializationHelper {
             value = new SerializableSet((Set) value);
         }
         if (value instanceof ConfigurationSection) {
-            return buildMap(((ConfigurationSection) value).getValues(false));
+            return buildMap(((ConfigurationSection) value).getValues(false), metrics);
         } else if (value instanceof Map) {
-            return buildMap((Map) value);
+            return buildMap((Map) value, metrics);
         } else if (value instanceof List) {
-            return buildList((List) value);
+            return buildList((List) value, metrics);
         } else if (value instanceof ConfigurationSerializable) {
             ConfigurationSerializable serializable = (ConfigurationSerializable) value;
             Map<String, Object> values = new LinkedHashMap<>();
-            values.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, ConfigurationSerialization.getAlias(serializable.getClass()));
+            values.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, SerializationCache.getAlias(serializable.getClass()));
             values.putAll(serializable.serialize());
-            return buildMap(values);
+            return buildMap(values, metrics);
         } else {
             return value;
         }
@@ -55,7 +65,8 @@ public class SerializationHelper {
      *
      * Specifically it does the following:
      *   for Map: calls this method recursively on the Map before putting it in the returned Map.
-     *   for List: calls {@link #buildList(java.util.Collection)} which functions similar to this method.
+     *   for List: calls {@link #buildList(java.util.Collection, ConfigurationMetrics)} which functions similar to
+     *       this method.
      *   for ConfigurationSection: gets the values as a map and calls this method recursively on the Map before putting
      *       it in the returned Map.
      *   for ConfigurationSerializable: add the {@link ConfigurationSerialization#SERIALIZED_TYPE_KEY} to a new Map
@@ -64,14 +75,17 @@ public class SerializationHelper {
      *   for Everything else: stores it as is in the returned Map.
      */
     @NotNull
-    private static Map<String, Object> buildMap(@NotNull final Map<?, ?> map) {
+    private static Map<String, Object> buildMap(@NotNull final Map<?, ?> map, final ConfigurationMetrics metrics) {
         final Map<String, Object> result = new LinkedHashMap<String, Object>(map.size());
         try {
             for (final Map.Entry<?, ?> entry : map.entrySet()) {
-                result.put(entry.getKey().toString(), serialize(entry.getValue()));
+                result.put(entry.getKey().toString(), serialize(entry.getValue(), metrics));
             }
         } catch (final Exception e) {
             LOG.log(Level.WARNING, "Error while building configuration map.", e);
+            if (metrics != null) {
+                metrics.swallowed("serialize", e);
+            }
         }
         return result;
     }
@@ -81,23 +95,29 @@ public class SerializationHelper {
      * as possible for storage in most data formats.
      *
      * Specifically it does the following:
-     *   for Map: calls {@link #buildMap(java.util.Map)} on the Map before adding to the returned list.
+     *   for Map: calls {@link #buildMap(java.util.Map, ConfigurationMetrics)} on the Map before adding to the
+     *       returned list.
      *   for List: calls this method recursively on the List.
-     *   for ConfigurationSection: gets the values as a map and calls {@link #buildMap(java.util.Map)} on the Map
-     *       before adding to the returned list.
+     *   for ConfigurationSection: gets the values as a map and calls
+     *       {@link #buildMap(java.util.Map, ConfigurationMetrics)} on the Map before adding to the returned list.
      *   for ConfigurationSerializable: add the {@link ConfigurationSerialization#SERIALIZED_TYPE_KEY} to a new Map
      *       along with the Map given by {@link org.bukkit.configuration.serialization.ConfigurationSerializable#serialize()}
-     *       and calls {@link #buildMap(java.util.Map)} on the new Map before adding to the returned list.
+     *       and calls {@link #buildMap(java.util.Map, ConfigurationMetrics)} on the new Map before adding to the
+     *       returned list.
      *   for Everything else: stores it as is in the returned List.
      */
-    private static List<Object> buildList(@NotNull final Collection<?> collection) {
+    private static List<Object> buildList(@NotNull final Collection<?> collection,
+                                          final ConfigurationMetrics metrics) {
         final List<Object> result = new ArrayList<Object>(collection.size());
         try {
             for (Object o : collection) {
-                result.add(serialize(o));
+                result.add(serialize(o, metrics));
             }
         } catch (Exception e) {
             LOG.log(Level.WARNING, "Error while building configuration list.", e);
+            if (metrics != null) {
+                metrics.swallowed("serialize", e);
+            }
         }
         return result;
     }
@@ -105,48 +125,124 @@ public class SerializationHelper {
     /**
      * Parses through the input map to deal with serialized objects a la {@link ConfigurationSerializable}.
      *
-     * Called recursively first on Maps and Lists before passing the parsed input over to
+     * Walks into Maps and Lists first before passing the parsed input over to
      * {@link ConfigurationSerialization#deserializeObject(java.util.Map)}.  Basically this means it will deserialize
-     * the most nested objects FIRST and the top level object LAST.
+     * the most nested objects FIRST and the top level object LAST.  The walk keeps its own stack, so deeply nested
+     * input cannot overflow the thread's.
      */
     public static Object deserialize(@NotNull final Map<?, ?> input) {
-        final Map<String, Object> output = new LinkedHashMap<String, Object>(input.size());
-        for (final Map.Entry<?, ?> e : input.entrySet()) {
-            if (e.getValue() instanceof Map) {
-                output.put(e.getKey().toString(), deserialize((Map<?, ?>) e.getValue()));
-            }  else if (e.getValue() instanceof List) {
-                output.put(e.getKey().toString(), deserialize((List<?>) e.getValue()));
+        return deserialize(input, null);
+    }
+
+    /**
+     * Same as {@link #deserialize(java.util.Map)}, also reporting each object deserialized and the errors logged and
+     * ignored to the given metrics.
+     */
+    public static Object deserialize(@NotNull final Map<?, ?> input, final ConfigurationMetrics metrics) {
+        final Deque<Frame> frames = new ArrayDeque<Frame>();
+        frames.push(new Frame(input, null));
+        while (true) {
+            final Frame frame = frames.peek();
+            if (frame.entries.hasNext()) {
+                final Object entry = frame.entries.next();
+                final String key;
+                final Object value;
+                if (frame.map != null) {
+                    key = ((Map.Entry<?, ?>) entry).getKey().toString();
+                    value = ((Map.Entry<?, ?>) entry).getValue();
+                } else {
+                    key = null;
+                    value = entry;
+                }
+                if (value instanceof Map || value instanceof List) {
+                    frames.push(new Frame(value, key));
+                } else {
+                    frame.add(key, value);
+                }
+                continue;
+            }
+            frames.pop();
+            final Object result;
+            if (frame.map != null && frame.map.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+                result = deserializeObject(frame.map, metrics);
             } else {
-                output.put(e.getKey().toString(), e.getValue());
+                result = frame.output();
+            }
+            if (frames.isEmpty()) {
+                return result;
             }
+            frames.peek().add(frame.key, result);
         }
-        if (output.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+    }
+
+    /**
+     * Deserializes a single map that carries the {@link ConfigurationSerialization#SERIALIZED_TYPE_KEY}.
+     *
+     * Unlike {@link #deserialize(java.util.Map)} this does not walk into the values of the map, so any nested
+     * serialized objects must have been deserialized already.
+     */
+    public static Object deserializeObject(@NotNull final Map<String, ?> input) {
+        return deserializeObject(input, null);
+    }
+
+    /**
+     * Same as {@link #deserializeObject(java.util.Map)}, also reporting the time it took and the errors it logs and
+     * ignores to the given metrics.
+     */
+    public static Object deserializeObject(@NotNull final Map<String, ?> input, final ConfigurationMetrics metrics) {
+        if (metrics == null) {
             try {
-                return ConfigurationSerialization.deserializeObject(output);
+                return SerializationCache.deserializeObject(input, null);
             } catch (IllegalArgumentException ex) {
                 throw new YAMLException("Could not deserialize object", ex);
             }
         }
-        return output;
+        final long start = System.nanoTime();
+        try {
+            return SerializationCache.deserializeObject(input, metrics);
+        } catch (IllegalArgumentException ex) {
+            throw new YAMLException("Could not deserialize object", ex);
+        } finally {
+            metrics.deserialized(String.valueOf(input.get(ConfigurationSerialization.SERIALIZED_TYPE_KEY)),
+                    System.nanoTime() - start);
+        }
     }
 
     /**
-     * Parses through the input list to deal with serialized objects a la {@link ConfigurationSerializable}.
-     *
-     * Functions similarly to {@link #deserialize(java.util.Map)} but only for detecting lists within
-     * lists and maps within lists.
+     * A Map or List partway through {@link #deserialize(java.util.Map, ConfigurationMetrics)}.
      */
-    private static Object deserialize(@NotNull final List<?> input) {
-        final List<Object> output = new ArrayList<Object>(input.size());
-        for (final Object o : input) {
-            if (o instanceof Map) {
-                output.add(deserialize((Map<?, ?>) o));
-            } else if (o instanceof List) {
-                output.add(deserialize((List<?>) o));
+    private static final class Frame {
+        final Iterator<?> entries;
+        final Map<String, Object> map;
+        final List<Object> list;
+        /** The key this goes under in the enclosing map, or null in a list. */
+        final String key;
+
+        Frame(@NotNull final Object input, final String key) {
+            this.key = key;
+            if (input instanceof Map) {
+                final Map<?, ?> in = (Map<?, ?>) input;
+                entries = in.entrySet().iterator();
+                map = new LinkedHashMap<String, Object>(in.size());
+                list = null;
             } else {
-                output.add(o);
+                final List<?> in = (List<?>) input;
+                entries = in.iterator();
+                map = null;
+                list = new ArrayList<Object>(in.size());
             }
         }
-        return output;
+
+        void add(final String key, final Object value) {
+            if (map != null) {
+                map.put(key, value);
+            } else {
+                list.add(value);
+            }
+        }
+
+        Object output() {
+            return map != null ? map : list;
+        }
     }
 }